@@ -74,10 +74,17 @@ public class PantsOptions {
 
   @NotNull
   private static PantsOptions execPantsOptions(@NotNull String pantsExecutable) {
+    final Optional<String> cachedOutput = PantsQueryCache.load(pantsExecutable, PantsQueryCache.QUERY_OPTIONS);
+    if (cachedOutput.isPresent()) {
+      return new PantsOptions(cachedOutput.get());
+    }
     GeneralCommandLine exportCommandline = PantsUtil.defaultCommandLine(pantsExecutable);
     exportCommandline.addParameters("options", PantsConstants.PANTS_CLI_OPTION_NO_COLORS);
     try {
       ProcessOutput processOutput = PantsUtil.getCmdOutput(exportCommandline, null);
+      if (processOutput.getExitCode() == 0) {
+        PantsQueryCache.store(pantsExecutable, PantsQueryCache.QUERY_OPTIONS, processOutput.getStdout());
+      }
       return new PantsOptions(processOutput.getStdout());
     }
     catch (ExecutionException e) {
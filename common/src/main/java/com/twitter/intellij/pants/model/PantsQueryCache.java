@@ -0,0 +1,172 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.model;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Keeps the output of the Pants queries that do not depend on targets, i.e. `pants options` and the export
+ * without targets, under the build root's .idea directory, so that they do not run again after an IDE restart.
+ * <p>
+ * An output is only used if the Pants executable, the Pants config files, which pin the Pants version,
+ * the rc files, the PANTS_* environment variables and the ones Pants locates the JVMs with are the same
+ * as when it was stored.
+ * The file change tracker also drops the outputs of a build root as soon as one of its config files changes.
+ */
+public class PantsQueryCache {
+  private static final Logger LOG = Logger.getInstance(PantsQueryCache.class);
+  private static final Gson gson = new Gson();
+
+  public static final String SYSTEM_PROPERTY_QUERY_CACHE_DISABLE = "pants.query.cache.disable";
+
+  public static final String QUERY_OPTIONS = "options";
+  public static final String QUERY_SIMPLE_EXPORT = "simple_export";
+
+  /**
+   * Bump this version if the layout of a cached output changes.
+   */
+  private static final int FORMAT_VERSION = 2;
+  private static final String CACHE_DIR = "pants-query-cache";
+  private static final String PANTS_RC = ".pants.rc";
+
+  private static final List<String> CONFIG_FILE_NAMES = Arrays.asList(
+    PantsConstants.PANTS,
+    PantsConstants.PANTS_INI,
+    PantsConstants.PANTS_TOML,
+    PANTS_RC,
+    IJRC.IMPORT_RC_FILENAME,
+    IJRC.ITERATE_RC_FILENAME
+  );
+
+  /**
+   * The environment variables the JVM distributions in the export without targets are looked up with.
+   */
+  private static final List<String> JVM_ENVIRONMENT_VARIABLES = Arrays.asList("JAVA_HOME", "JDK_HOME", "PATH");
+
+  /**
+   * @return whether a change of a file with this name in a build root may change the outputs cached for it.
+   */
+  public static boolean isConfigFile(@NotNull String fileName) {
+    return CONFIG_FILE_NAMES.contains(fileName);
+  }
+
+  @NotNull
+  static Optional<String> load(@NotNull String pantsExecutable, @NotNull String query) {
+    if (Boolean.getBoolean(SYSTEM_PROPERTY_QUERY_CACHE_DISABLE)) {
+      return Optional.empty();
+    }
+    final File entryFile = getEntryFile(pantsExecutable, query);
+    if (!entryFile.isFile()) {
+      return Optional.empty();
+    }
+    try {
+      final Entry entry = gson.fromJson(FileUtil.loadFile(entryFile, StandardCharsets.UTF_8), Entry.class);
+      if (entry == null || entry.output == null || !Objects.equals(entry.key, getKey(pantsExecutable))) {
+        return Optional.empty();
+      }
+      LOG.debug("Using the cached output of " + query + " of " + pantsExecutable);
+      return Optional.of(entry.output);
+    }
+    catch (IOException | JsonSyntaxException e) {
+      LOG.warn("Failed to read " + entryFile, e);
+      return Optional.empty();
+    }
+  }
+
+  static void store(@NotNull String pantsExecutable, @NotNull String query, @NotNull String output) {
+    if (Boolean.getBoolean(SYSTEM_PROPERTY_QUERY_CACHE_DISABLE)) {
+      return;
+    }
+    final File entryFile = getEntryFile(pantsExecutable, query);
+    final File tempFile = new File(entryFile.getPath() + ".tmp");
+    try {
+      FileUtil.writeToFile(tempFile, gson.toJson(new Entry(getKey(pantsExecutable), output)));
+      Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to cache the output of " + query + " of " + pantsExecutable, e);
+      FileUtil.delete(tempFile);
+    }
+  }
+
+  /**
+   * Drops the output of a query cached on disk for a Pants executable.
+   */
+  static void remove(@NotNull String pantsExecutable, @NotNull String query) {
+    FileUtil.delete(getEntryFile(pantsExecutable, query));
+  }
+
+  /**
+   * Drops the outputs cached for a build root, on disk and in memory.
+   */
+  public static void invalidate(@NotNull File buildRoot) {
+    FileUtil.delete(getCacheDir(buildRoot));
+    PantsOptions.clearCache();
+    SimpleExportResult.clearCache();
+  }
+
+  @NotNull
+  private static File getCacheDir(@NotNull File buildRoot) {
+    return new File(new File(buildRoot, Project.DIRECTORY_STORE_FOLDER), CACHE_DIR);
+  }
+
+  @NotNull
+  private static File getEntryFile(@NotNull String pantsExecutable, @NotNull String query) {
+    final File executable = new File(pantsExecutable).getAbsoluteFile();
+    final String executableHash = Hashing.sha256().hashString(executable.getPath(), StandardCharsets.UTF_8).toString();
+    return new File(getCacheDir(executable.getParentFile()), query + "_" + executableHash.substring(0, 16) + ".json");
+  }
+
+  @NotNull
+  private static String getKey(@NotNull String pantsExecutable) {
+    final File executable = new File(pantsExecutable).getAbsoluteFile();
+    final File buildRoot = executable.getParentFile();
+    final StringBuilder key = new StringBuilder()
+      .append(FORMAT_VERSION).append('\n')
+      .append(executable.getPath()).append('=').append(PantsUtil.getCacheKeyHash(executable)).append('\n')
+      .append("pants.executable.path=").append(System.getProperty("pants.executable.path")).append('\n');
+    for (String name : CONFIG_FILE_NAMES) {
+      key.append(name).append('=').append(PantsUtil.getCacheKeyHash(new File(buildRoot, name))).append('\n');
+    }
+    key.append("~/").append(PANTS_RC).append('=').append(PantsUtil.getCacheKeyHash(new File(System.getProperty("user.home"), PANTS_RC))).append('\n');
+    key.append("/etc/pantsrc=").append(PantsUtil.getCacheKeyHash(new File("/etc/pantsrc"))).append('\n');
+    final Map<String, String> environment = new TreeMap<>(System.getenv());
+    environment.forEach((name, value) -> {
+      if (name.startsWith("PANTS_") || JVM_ENVIRONMENT_VARIABLES.contains(name)) {
+        key.append(name).append('=').append(value).append('\n');
+      }
+    });
+    return key.toString();
+  }
+
+  private static class Entry {
+    private final String key;
+    private final String output;
+
+    private Entry(@NotNull String key, @NotNull String output) {
+      this.key = key;
+      this.output = output;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -51,6 +52,14 @@ public class SimpleExportResult {
     simpleExportCache.clear();
   }
 
+  /**
+   * Drops the result of a Pants executable, in memory and on disk, so that the next one is exported again.
+   */
+  public static void clearCache(@NotNull String pantsExecutable) {
+    simpleExportCache.remove(new File(pantsExecutable));
+    PantsQueryCache.remove(pantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT);
+  }
+
   public Map<String, Map<String, String>> getPreferredJvmDistributions() {
     return preferredJvmDistributions;
   }
@@ -77,9 +86,21 @@ public class SimpleExportResult {
   @NotNull
   public static SimpleExportResult getExportResult(@NotNull String pantsExecutable) {
     File pantsExecutableFile = new File(pantsExecutable);
-    SimpleExportResult cache = simpleExportCache.get(pantsExecutableFile);
-    if (cache != null) {
-      return cache;
+    // Like for PantsOptions, a caller asking while the export is running waits for it instead of running another one,
+    // e.g. when the import already started it in the background.
+    return simpleExportCache.computeIfAbsent(pantsExecutableFile, file -> execExport(pantsExecutable));
+  }
+
+  @NotNull
+  private static SimpleExportResult execExport(@NotNull String pantsExecutable) {
+    final Optional<String> cachedOutput = PantsQueryCache.load(pantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT);
+    if (cachedOutput.isPresent()) {
+      final SimpleExportResult cachedResult = parse(cachedOutput.get());
+      final Optional<String> missingJdkHome = cachedResult.findMissingJdkHome();
+      if (!missingJdkHome.isPresent()) {
+        return cachedResult;
+      }
+      LOG.info("Exporting again, the cached JDK home " + missingJdkHome.get() + " does not exist any more");
     }
     final GeneralCommandLine commandline = PantsUtil.defaultCommandLine(pantsExecutable);
     commandline.addParameters("--no-quiet", "export", PantsConstants.PANTS_CLI_OPTION_NO_COLORS);
@@ -90,8 +111,9 @@ public class SimpleExportResult {
       final ProcessOutput processOutput = PantsUtil.getCmdOutput(commandline, null);
 
       if (processOutput.checkSuccess(LOG)) {
-        SimpleExportResult result = parse(FileUtil.loadFile(tempFile.getFile()));
-        simpleExportCache.put(pantsExecutableFile, result);
+        final String output = FileUtil.loadFile(tempFile.getFile());
+        final SimpleExportResult result = parse(output);
+        PantsQueryCache.store(pantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT, output);
         return result;
       }
     }
@@ -114,6 +136,22 @@ public class SimpleExportResult {
     return Optional.ofNullable(platformMap.get(strict ? PantsConstants.PANTS_EXPORT_KEY_STRICT : PantsConstants.PANTS_EXPORT_KEY_NON_STRICT));
   }
 
+  /**
+   * @return a JDK home of the result which does not exist, e.g. because the JDK was upgraded since the cached export.
+   */
+  @VisibleForTesting
+  @NotNull
+  Optional<String> findMissingJdkHome() {
+    if (preferredJvmDistributions == null) {
+      return Optional.empty();
+    }
+    return preferredJvmDistributions.values().stream()
+      .filter(Objects::nonNull)
+      .flatMap(distributions -> distributions.values().stream())
+      .filter(jdkHome -> jdkHome != null && !new File(jdkHome).isDirectory())
+      .findFirst();
+  }
+
   @VisibleForTesting
   @NotNull
   public static SimpleExportResult parse(@NotNull String output) {
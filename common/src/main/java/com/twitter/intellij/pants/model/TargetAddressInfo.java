@@ -34,6 +34,10 @@ public class TargetAddressInfo {
     return is_synthetic;
   }
 
+  public void setIsSynthetic(boolean is_synthetic) {
+    this.is_synthetic = is_synthetic;
+  }
+
   public void setIsTargetRoot(boolean is_target_root) {
     this.is_target_root = is_target_root;
   }
@@ -53,6 +57,10 @@ public class TargetAddressInfo {
     return id;
   }
 
+  public void setId(String id) {
+    this.id = id;
+  }
+
   @NotNull
   public Globs getGlobs() {
     return globs != null ? globs : Globs.EMPTY;
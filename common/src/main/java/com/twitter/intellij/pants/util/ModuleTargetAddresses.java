@@ -0,0 +1,58 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.util.Key;
+import com.intellij.util.containers.ContainerUtil;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The target addresses of a module, parsed from its {@link PantsConstants#PANTS_TARGET_ADDRESSES_KEY} option
+ * and kept in the user data of the module until the option changes, so that actions updating on every
+ * selection or keystroke don't run Gson each time.
+ */
+final class ModuleTargetAddresses {
+  private static final Key<ModuleTargetAddresses> KEY = Key.create("pants.module.target.addresses");
+
+  private final String myOption;
+  private final List<PantsTargetAddress> myAddresses;
+  private final List<String> myNonGenAddresses;
+
+  private ModuleTargetAddresses(@NotNull String option) {
+    myOption = option;
+    myAddresses = Collections.unmodifiableList(
+      ContainerUtil.mapNotNull(PantsUtil.hydrateTargetAddresses(option), PantsTargetAddress::fromString)
+    );
+    myNonGenAddresses = Collections.unmodifiableList(PantsUtil.getNonGenTargetAddresses(myAddresses));
+  }
+
+  /**
+   * The parsed addresses only depend on the option, so comparing it with the one they were parsed from
+   * is enough to notice a re-import, without listening to module changes.
+   */
+  @NotNull
+  static ModuleTargetAddresses get(@NotNull Module module, @NotNull String option) {
+    ModuleTargetAddresses result = module.getUserData(KEY);
+    if (result == null || !result.myOption.equals(option)) {
+      result = new ModuleTargetAddresses(option);
+      module.putUserData(KEY, result);
+    }
+    return result;
+  }
+
+  @NotNull
+  List<PantsTargetAddress> getAddresses() {
+    return myAddresses;
+  }
+
+  @NotNull
+  List<String> getNonGenAddresses() {
+    return myNonGenAddresses;
+  }
+}
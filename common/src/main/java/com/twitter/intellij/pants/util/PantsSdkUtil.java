@@ -83,6 +83,8 @@ public final class PantsSdkUtil {
     if (pantsExecutable == null) {
       return;
     }
+    // The JDK may have moved since the cached export, which is what a refresh is for.
+    SimpleExportResult.clearCache(pantsExecutable);
 
     if (originalSdk != null && originalSdk.getName().endsWith(pantsExecutable)) {
       PantsSdkUtil.createPantsJdk(pantsExecutable)
@@ -4,6 +4,7 @@
 package com.twitter.intellij.pants.util;
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import com.intellij.execution.ExecutionException;
@@ -455,21 +456,18 @@ public class PantsUtil {
     return targetName.replace(':', delimeter).replace('/', delimeter).replace('\\', delimeter);
   }
 
+  /**
+   * @return the target addresses of the module, parsed once per import of the module. The list is unmodifiable.
+   */
   @NotNull
   public static List<PantsTargetAddress> getTargetAddressesFromModule(@Nullable Module module) {
-    if (module == null || !isPantsModule(module)) {
-      return Collections.emptyList();
-    }
-    final String targets = module.getOptionValue(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
-    if (targets == null) {
-      return Collections.emptyList();
-    }
-    return ContainerUtil.mapNotNull(
-      hydrateTargetAddresses(targets),
-      PantsTargetAddress::fromString
-    );
+    final Optional<ModuleTargetAddresses> addresses = findModuleTargetAddresses(module);
+    return addresses.isPresent() ? addresses.get().getAddresses() : Collections.emptyList();
   }
 
+  /**
+   * @return the target addresses of the module which are not generated, see {@link #isGenTarget}. The list is unmodifiable.
+   */
   @NotNull
   public static List<String> getNonGenTargetAddresses(@Nullable Module module) {
     if (module == null) {
@@ -478,7 +476,20 @@ public class PantsUtil {
     if (!isSourceModule(module)) {
       return Collections.emptyList();
     }
-    return getNonGenTargetAddresses(getTargetAddressesFromModule(module));
+    final Optional<ModuleTargetAddresses> addresses = findModuleTargetAddresses(module);
+    return addresses.isPresent() ? addresses.get().getNonGenAddresses() : Collections.emptyList();
+  }
+
+  @NotNull
+  private static Optional<ModuleTargetAddresses> findModuleTargetAddresses(@Nullable Module module) {
+    if (module == null || !isPantsModule(module)) {
+      return Optional.empty();
+    }
+    final String targets = module.getOptionValue(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+    if (targets == null) {
+      return Optional.empty();
+    }
+    return Optional.of(ModuleTargetAddresses.get(module, targets));
   }
 
   public static boolean isSourceModule(@NotNull Module module) {
@@ -821,6 +832,21 @@ public class PantsUtil {
     }
   }
 
+  /**
+   * @return the SHA-256 of the contents of the file for the key of a cache, or an empty string if there is no such file.
+   * If the file can't be read, a value no other call returns, so that the cache is missed rather than trusted.
+   */
+  @NotNull
+  public static String getCacheKeyHash(@NotNull File file) {
+    try {
+      return file.isFile() ? Hashing.sha256().hashBytes(Files.readAllBytes(file.toPath())).toString() : "";
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to read " + file, e);
+      return String.valueOf(System.nanoTime());
+    }
+  }
+
   @NotNull
   public static Set<String> hydrateTargetAddresses(@NotNull String addresses) {
     // There may be serialization behavior change on {@link com.intellij.openapi.module.Module.setOption}
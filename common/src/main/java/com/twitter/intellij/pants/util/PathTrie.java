@@ -0,0 +1,120 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of paths stored by their segments, so that the ancestry queries between a path and the whole set
+ * cost as much as the depth of the path instead of the size of the set.
+ * <p>
+ * Like {@link FileUtil#isAncestor(String, String, boolean)}, both separators are accepted
+ * and segments are compared case insensitively on case insensitive file systems.
+ */
+public class PathTrie {
+  private final Node myRoot = new Node();
+
+  public PathTrie() {
+  }
+
+  public PathTrie(@NotNull Collection<String> paths) {
+    paths.forEach(this::add);
+  }
+
+  /**
+   * Adds a path. Of several paths with the same segments, the first one added is kept.
+   */
+  public void add(@NotNull String path) {
+    Node node = myRoot;
+    for (String segment : split(path)) {
+      node = node.myChildren.computeIfAbsent(segment, s -> new Node());
+    }
+    if (node.myPath == null) {
+      node.myPath = path;
+    }
+  }
+
+  /**
+   * @param strict if false, the path itself counts as its ancestor.
+   * @return whether one of the paths is an ancestor of the given one.
+   */
+  public boolean containsAncestor(@NotNull String path, boolean strict) {
+    return findLongestPrefix(path, strict) != null;
+  }
+
+  /**
+   * @return the deepest of the paths which is the given one or an ancestor of it, null if there is none.
+   */
+  @Nullable
+  public String findLongestPrefix(@NotNull String path) {
+    return findLongestPrefix(path, false);
+  }
+
+  @Nullable
+  private String findLongestPrefix(@NotNull String path, boolean strict) {
+    final List<String> segments = split(path);
+    final int depth = strict ? segments.size() - 1 : segments.size();
+    Node node = myRoot;
+    String result = node.myPath;
+    for (int i = 0; i < depth && node != null; i++) {
+      node = node.myChildren.get(segments.get(i));
+      if (node != null && node.myPath != null) {
+        result = node.myPath;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the paths which have no ancestor among the others, in no particular order.
+   */
+  @NotNull
+  public List<String> getTopAncestors() {
+    final List<String> result = new ArrayList<>();
+    final Deque<Node> queue = new ArrayDeque<>();
+    queue.add(myRoot);
+    while (!queue.isEmpty()) {
+      final Node node = queue.poll();
+      if (node.myPath != null) {
+        result.add(node.myPath);
+      }
+      else {
+        queue.addAll(node.myChildren.values());
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static List<String> split(@NotNull String path) {
+    final String independentPath = FileUtil.toSystemIndependentName(path);
+    final List<String> segments = new ArrayList<>();
+    if (independentPath.startsWith("/")) {
+      // Keeps absolute paths apart from relative ones.
+      segments.add("");
+    }
+    for (String segment : independentPath.split("/")) {
+      if (!segment.isEmpty()) {
+        segments.add(SystemInfo.isFileSystemCaseSensitive ? segment : segment.toLowerCase());
+      }
+    }
+    return segments;
+  }
+
+  private static class Node {
+    private final Map<String, Node> myChildren = new HashMap<>();
+    private String myPath;
+  }
+}
@@ -33,7 +33,9 @@ import com.twitter.intellij.pants.file.FileChangeTracker;
 import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
 import com.twitter.intellij.pants.metrics.PantsMetrics;
 import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.service.project.PantsPartialResolve;
 import com.twitter.intellij.pants.service.project.PantsResolver;
+import com.twitter.intellij.pants.service.project.wave.PantsImportWaves;
 import com.twitter.intellij.pants.settings.PantsProjectSettings;
 import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
@@ -52,6 +54,8 @@ public class PantsProjectComponentImpl implements ProjectManagerListener {
   public void projectClosed(@NotNull Project project) {
     PantsMetrics.report();
     FileChangeTracker.unregisterProject(project);
+    PantsPartialResolve.unregisterProject(project);
+    PantsImportWaves.unregisterProject(project);
   }
 
   @Override
@@ -9,6 +9,7 @@ import com.google.common.hash.Hashing;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileCopyEvent;
@@ -19,6 +20,7 @@ import com.intellij.openapi.vfs.VirtualFileMoveEvent;
 import com.intellij.openapi.vfs.VirtualFilePropertyEvent;
 import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
 import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.model.PantsQueryCache;
 import com.twitter.intellij.pants.settings.PantsSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
@@ -37,6 +39,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoUnit.MILLIS;
 
@@ -54,6 +57,10 @@ public class FileChangeTracker {
   // Maps from Project to <myIsDirty, lastCompileSnapshot>
   private static ConcurrentHashMap<Project, ProjectState> projectStates = new ConcurrentHashMap<>();
 
+  // Directories of the BUILD files changed since the last full export, by linked project path,
+  // used to re-export only those on refresh.
+  private static final ConcurrentHashMap<String, Set<String>> changedBuildDirectories = new ConcurrentHashMap<>();
+
   /**
    * Keep certain states about the current project.
    */
@@ -105,6 +112,15 @@ public class FileChangeTracker {
   private static void markDirty(@NotNull VirtualFile file, final PantsOptions pantsOptions, @NotNull VirtualFileListener listener) {
     Project project = listenToProjectMap.get(listener);
 
+    if (PantsQueryCache.isConfigFile(file.getName())) {
+      // Config files are usually outside of the content roots, so they are checked before the change type.
+      final VirtualFile directory = file.getParent();
+      if (directory != null && directory.findChild(PantsConstants.PANTS) != null) {
+        LOG.debug(String.format("Changed: %s. Dropping the cached Pants options", file.getPath()));
+        PantsQueryCache.invalidate(new File(directory.getPath()));
+      }
+    }
+
     ChangeType changeType = detectChangeType(project, pantsOptions, file);
     LOG.debug(String.format("Changed: %s. In project: %s", file.getPath(), changeType));
     if (changeType == ChangeType.UNRELATED) {
@@ -114,6 +130,10 @@ public class FileChangeTracker {
     markDirty(project);
 
     if (changeType == ChangeType.BUILD) {
+      Optional.ofNullable(file.getParent()).ifPresent(dir -> PantsSettings.getInstance(project).getLinkedProjectsSettings().forEach(
+        settings -> changedBuildDirectories.computeIfAbsent(settings.getExternalProjectPath(), path -> ConcurrentHashMap.newKeySet())
+          .add(dir.getPath())
+      ));
       ProjectRefreshListener.notify(project);
     }
   }
@@ -152,6 +172,42 @@ public class FileChangeTracker {
     projectStates.put(project, new ProjectState(isDirty, LocalTime.now(), Optional.empty()));
   }
 
+  /**
+   * @return the directories relative to the build root of the BUILD files under it that changed
+   * in the IDE project of a linked project since its last full export.
+   */
+  @NotNull
+  public static Set<String> getChangedBuildDirectories(@NotNull File buildRoot, @NotNull String linkedProjectPath) {
+    final Path buildRootPath = buildRoot.toPath();
+    return changedBuildDirectories.getOrDefault(linkedProjectPath, Collections.emptySet()).stream()
+      .map(Paths::get)
+      .filter(dir -> dir.startsWith(buildRootPath))
+      .map(dir -> FileUtil.toSystemIndependentName(buildRootPath.relativize(dir).toString()))
+      .collect(Collectors.toSet());
+  }
+
+  /**
+   * Forgets the given changed directories of a linked project, e.g. once a full export has picked them up.
+   * The ones changed since they were read are kept.
+   *
+   * @param directories directories relative to the build root, see {@link #getChangedBuildDirectories}.
+   */
+  public static void clearChangedBuildDirectories(
+    @NotNull File buildRoot,
+    @NotNull String linkedProjectPath,
+    @NotNull Set<String> directories
+  ) {
+    final Path buildRootPath = buildRoot.toPath();
+    final Set<String> changed = changedBuildDirectories.get(linkedProjectPath);
+    if (changed != null) {
+      changed.removeIf(dir -> {
+        final Path path = Paths.get(dir);
+        return path.startsWith(buildRootPath) &&
+               directories.contains(FileUtil.toSystemIndependentName(buildRootPath.relativize(path).toString()));
+      });
+    }
+  }
+
   public static void addManifestJarIntoSnapshot(@NotNull Project project) {
     Optional<CompileSnapshot> snapshot = projectStates.get(project).getLastCompileSnapshot();
     if (!snapshot.isPresent()) {
@@ -283,6 +339,8 @@ public class FileChangeTracker {
 
   public static void unregisterProject(@NotNull Project project) {
     projectStates.remove(project);
+    PantsSettings.getInstance(project).getLinkedProjectsSettings()
+      .forEach(settings -> changedBuildDirectories.remove(settings.getExternalProjectPath()));
 
     // Remove the listener for the project.
     listenToProjectMap.entrySet().stream()
@@ -58,4 +58,25 @@ public interface PantsExternalMetricsListener {
   void logIndexingDuration(long milliSeconds) throws Throwable;
 
   void logEvent(String event);
+
+  /**
+   * Log the duration of a phase of the project import, e.g. the export, parsing it,
+   * a project info modifier or a resolver extension.
+   *
+   * @param phase        name of the phase.
+   * @param milliSeconds long number.
+   * @throws Throwable
+   */
+  default void logImportPhaseDuration(String phase, long milliSeconds) throws Throwable {
+  }
+
+  /**
+   * Log the size of the imported project, e.g. the amount of targets, modules or libraries.
+   *
+   * @param name  what is counted.
+   * @param count long number.
+   * @throws Throwable
+   */
+  default void logImportCount(String name, long count) throws Throwable {
+  }
 }
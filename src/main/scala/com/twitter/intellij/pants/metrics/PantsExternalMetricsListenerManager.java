@@ -97,6 +97,30 @@ public class PantsExternalMetricsListenerManager implements PantsExternalMetrics
     });
   }
 
+  @Override
+  public void logImportPhaseDuration(String phase, long milliSeconds) {
+    Arrays.stream(EP_NAME.getExtensions()).forEach(s -> {
+      try {
+        s.logImportPhaseDuration(phase, milliSeconds);
+      }
+      catch (Throwable t) {
+        LOG.info(t);
+      }
+    });
+  }
+
+  @Override
+  public void logImportCount(String name, long count) {
+    Arrays.stream(EP_NAME.getExtensions()).forEach(s -> {
+      try {
+        s.logImportCount(name, count);
+      }
+      catch (Throwable t) {
+        LOG.info(t);
+      }
+    });
+  }
+
   public void logTestRunner(RunConfiguration runConfiguration) {
     /**
      /**
@@ -21,6 +21,8 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -41,6 +43,27 @@ public class PantsMetrics {
   private static final String METRIC_INDEXING = "indexing_second";
   private static final String METRIC_LOAD = "load_second";
   private static final String METRIC_EXPORT = "export_second";
+  private static final String METRIC_EXPORT_SHARD_PREFIX = "export_shard_";
+  private static final String METRIC_EXPORT_SHARD = METRIC_EXPORT_SHARD_PREFIX + "%d_second";
+  private static final String METRIC_IMPORT_PHASE = "import_phase_%s_millisecond";
+  private static final String METRIC_IMPORT_COUNT = "import_%s_count";
+
+  public static final String IMPORT_PHASE_EXPORT = "export";
+  public static final String IMPORT_PHASE_PARSE = "parse";
+  public static final String IMPORT_PHASE_BUILD_GRAPH = "build_graph";
+  public static final String IMPORT_PHASE_LIBRARY_JARS = "library_jars";
+  public static final String IMPORT_PHASE_MODIFIER = "modifier_%s";
+  public static final String IMPORT_PHASE_RESOLVER = "resolver_%s";
+  public static final String IMPORT_PHASE_CLEAR_MODULES = "clear_modules";
+
+  public static final String IMPORT_COUNT_TARGETS = "targets";
+  public static final String IMPORT_COUNT_LIBRARIES = "libraries";
+  public static final String IMPORT_COUNT_MODULES = "modules";
+
+  /**
+   * Import phases are much shorter than the timers above, so they are kept in milliseconds next to the import counts.
+   */
+  private static ConcurrentHashMap<String, Long> importResults = new ConcurrentHashMap<>();
 
 
   @Nullable
@@ -114,9 +137,12 @@ public class PantsMetrics {
   }
 
   public static void initialize() {
+    importResults.clear();
     timers.put(METRIC_EXPORT, Stopwatch.createUnstarted());
     timers.put(METRIC_LOAD, Stopwatch.createUnstarted());
     timers.put(METRIC_INDEXING, Stopwatch.createUnstarted());
+    // The shards of the previous import, which may have been split differently.
+    timers.keySet().removeIf(name -> name.startsWith(METRIC_EXPORT_SHARD_PREFIX));
 
     globalCleanup();
     indexThreadPool = Executors.newSingleThreadScheduledExecutor(
@@ -128,6 +154,13 @@ public class PantsMetrics {
       });
   }
 
+  /**
+   * Drops the import phases and counts of the previous import, so that the report only has the ones of the last one.
+   */
+  public static void markImportStart() {
+    importResults.clear();
+  }
+
   public static void markResolveStart() {
     startWatch(timers.get(METRIC_LOAD));
   }
@@ -144,6 +177,68 @@ public class PantsMetrics {
     stopWatch(timers.get(METRIC_EXPORT));
   }
 
+  /**
+   * Shards of a sharded export run concurrently, so each has its own timer next to the overall export one.
+   */
+  public static void markExportShardStart(int shard) {
+    startWatch(timers.computeIfAbsent(String.format(METRIC_EXPORT_SHARD, shard), key -> Stopwatch.createUnstarted()));
+  }
+
+  public static void markExportShardEnd(int shard) {
+    stopWatch(timers.get(String.format(METRIC_EXPORT_SHARD, shard)));
+  }
+
+  /**
+   * Times a phase of the import, e.g. parsing the export or a resolver extension, and reports it
+   * to the {@link PantsExternalMetricsListener}s and, if metrics are enabled, in the report.
+   */
+  public static <T> T timeImportPhase(@NotNull String phase, @NotNull Supplier<T> supplier) {
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      return supplier.get();
+    }
+    finally {
+      recordImportPhase(phase, stopwatch);
+    }
+  }
+
+  public static void timeImportPhase(@NotNull String phase, @NotNull Runnable runnable) {
+    timeImportPhase(phase, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  /**
+   * Same as {@link #timeImportPhase(String, Supplier)}, for phases throwing checked exceptions:
+   * records the time elapsed on a stopwatch started at the beginning of the phase.
+   * A phase running several times in an import, e.g. the export of an incremental refresh, adds up.
+   */
+  public static void recordImportPhase(@NotNull String phase, @NotNull Stopwatch stopwatch) {
+    final long milliSeconds = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    if (isMetricsEnabled()) {
+      importResults.merge(String.format(METRIC_IMPORT_PHASE, phase), milliSeconds, Long::sum);
+    }
+    notifyListeners(listener -> listener.logImportPhaseDuration(phase, milliSeconds));
+  }
+
+  /**
+   * Records the size of the imported project, e.g. the amount of targets or modules.
+   */
+  public static void recordImportCount(@NotNull String name, long count) {
+    if (isMetricsEnabled()) {
+      importResults.put(String.format(METRIC_IMPORT_COUNT, name), count);
+    }
+    notifyListeners(listener -> listener.logImportCount(name, count));
+  }
+
+  private static void notifyListeners(@NotNull Consumer<PantsExternalMetricsListenerManager> notification) {
+    // There are no listeners outside of the IDE, e.g. in unit tests.
+    if (ApplicationManager.getApplication() != null) {
+      notification.accept(PantsExternalMetricsListenerManager.getInstance());
+    }
+  }
+
   public static void markIndexStart() {
     startWatch(timers.get(METRIC_INDEXING));
   }
@@ -171,7 +266,10 @@ public class PantsMetrics {
   }
 
   public static Map<String, Long> getCurrentResult() {
-    return timers.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().elapsed(TimeUnit.SECONDS)));
+    final Map<String, Long> result =
+      timers.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().elapsed(TimeUnit.SECONDS)));
+    result.putAll(importResults);
+    return result;
   }
 
 
@@ -3,6 +3,7 @@
 
 package com.twitter.intellij.pants.service;
 
+import com.google.common.base.Stopwatch;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.configurations.GeneralCommandLine;
 import com.intellij.execution.process.ProcessAdapter;
@@ -20,7 +21,9 @@ import com.twitter.intellij.pants.metrics.PantsMetrics;
 import com.twitter.intellij.pants.model.IJRC;
 import com.twitter.intellij.pants.model.PantsCompileOptions;
 import com.twitter.intellij.pants.model.PantsExecutionOptions;
+import com.twitter.intellij.pants.model.PantsOptions;
 import com.twitter.intellij.pants.settings.PantsExecutionSettings;
+import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
@@ -30,16 +33,32 @@ import org.jetbrains.annotations.TestOnly;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class PantsCompileOptionsExecutor {
   protected static final Logger LOG = Logger.getInstance(PantsCompileOptionsExecutor.class);
   public static final int PROJECT_NAME_LIMIT = 200;
+  /**
+   * Number of concurrent `pants export` processes the selected specs are split into. One, the default, disables sharding.
+   * <p>
+   * The shards share the build root and its workdir, so they only run concurrently if the Pants workdir lock is
+   * disabled, e.g. with `lock: False` in the GLOBAL section of pants.ini or PANTS_LOCK=false. Otherwise each shard
+   * would wait for the previous one, so the specs are exported at once. The lock is not disabled here, as Pants runs
+   * sharing a workdir may then conflict, e.g. when resolving the same jars.
+   */
+  public static final String SYSTEM_PROPERTY_EXPORT_SHARDS = "pants.export.shards";
 
   private final List<Process> myProcesses = ContainerUtil.createConcurrentList();
+  private volatile boolean myCancelled = false;
 
   private final PantsCompileOptions myOptions;
   private final File myBuildRoot;
@@ -101,6 +120,10 @@ public class PantsCompileOptionsExecutor {
     return myIncrementalImportDepth;
   }
 
+  public boolean isResolveSourcesAndDocsForJars() {
+    return myResolveSourcesAndDocsForJars;
+  }
+
   @NotNull
   public File getBuildRoot() {
     return myBuildRoot;
@@ -143,21 +166,25 @@ public class PantsCompileOptionsExecutor {
     return myOptions;
   }
 
+  /**
+   * @return the files holding the output of `pants export`, one per export shard. They are not loaded into memory here,
+   * so that the caller can stream them.
+   */
   @NotNull
-  public String loadProjectStructure(
+  public List<File> loadProjectStructure(
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
   ) throws IOException, ExecutionException {
     if (PantsUtil.isExecutable(getProjectPath())) {
-      return loadProjectStructureFromScript(getProjectPath(), statusConsumer, processAdapter);
+      return Collections.singletonList(loadProjectStructureFromScript(getProjectPath(), statusConsumer, processAdapter));
     }
     else {
-      return loadProjectStructureFromTargets(statusConsumer, processAdapter);
+      return loadProjectStructureFromTargets(statusConsumer);
     }
   }
 
   @NotNull
-  private static String loadProjectStructureFromScript(
+  private static File loadProjectStructureFromScript(
     @NotNull String scriptPath,
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
@@ -167,7 +194,9 @@ public class PantsCompileOptionsExecutor {
     statusConsumer.consume("Executing " + PathUtil.getFileName(scriptPath));
     final ProcessOutput processOutput = PantsUtil.getCmdOutput(commandLine, processAdapter);
     if (processOutput.checkSuccess(LOG)) {
-      return processOutput.getStdout();
+      final File outputFile = FileUtil.createTempFile("pants_script_run", ".out");
+      FileUtil.writeToFile(outputFile, processOutput.getStdout());
+      return outputFile;
     }
     else {
       throw new PantsExecutionException("Failed to update the project!", scriptPath, processOutput);
@@ -175,39 +204,167 @@ public class PantsCompileOptionsExecutor {
   }
 
   @NotNull
-  private String loadProjectStructureFromTargets(
-    @NotNull Consumer<String> statusConsumer,
-    @Nullable ProcessAdapter processAdapter
+  private List<File> loadProjectStructureFromTargets(@NotNull Consumer<String> statusConsumer)
+    throws IOException, ExecutionException {
+    int shardCount = Integer.getInteger(SYSTEM_PROPERTY_EXPORT_SHARDS, 1);
+    if (shardCount > 1 && usesWorkdirLock()) {
+      LOG.info("Exporting in one process, the Pants workdir lock would run the shards one after another");
+      shardCount = 1;
+    }
+    final List<List<String>> shards = splitIntoShards(getTargetSpecs(), shardCount);
+    PantsMetrics.markExportStart();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      if (shards.size() == 1) {
+        statusConsumer.consume("Resolving dependencies...");
+        return Collections.singletonList(exportTargetSpecs(shards.get(0)));
+      }
+      statusConsumer.consume("Resolving dependencies in " + shards.size() + " shards...");
+      return exportShards(shards);
+    }
+    finally {
+      PantsMetrics.markExportEnd();
+      PantsMetrics.recordImportPhase(PantsMetrics.IMPORT_PHASE_EXPORT, stopwatch);
+    }
+  }
+
+  /**
+   * Runs an export per shard concurrently. As soon as one of them fails, the others are cancelled.
+   */
+  @NotNull
+  private List<File> exportShards(@NotNull List<List<String>> shards) throws IOException, ExecutionException {
+    final ExecutorService executor = Executors.newFixedThreadPool(shards.size(), r -> new Thread(r, "Pants-Export-Shard"));
+    try {
+      final CompletionService<File> completionService = new ExecutorCompletionService<>(executor);
+      final List<Future<File>> exports = new ArrayList<>();
+      for (int i = 0; i < shards.size(); i++) {
+        final int shard = i;
+        exports.add(completionService.submit(() -> {
+          PantsMetrics.markExportShardStart(shard);
+          try {
+            return exportTargetSpecs(shards.get(shard));
+          }
+          finally {
+            PantsMetrics.markExportShardEnd(shard);
+          }
+        }));
+      }
+      // Waits for the exports in the order they finish, so that the first failure is not hidden behind a slower shard.
+      for (int i = 0; i < exports.size(); i++) {
+        completionService.take().get();
+      }
+      final List<File> outputFiles = new ArrayList<>();
+      for (Future<File> export : exports) {
+        outputFiles.add(export.get());
+      }
+      return outputFiles;
+    }
+    catch (java.util.concurrent.ExecutionException e) {
+      cancelAllProcesses();
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof ExecutionException) {
+        throw (ExecutionException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ExecutionException(cause);
+    }
+    catch (InterruptedException e) {
+      cancelAllProcesses();
+      Thread.currentThread().interrupt();
+      throw new ExecutionException(e);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Distributes the specs round-robin, so that e.g. recursive specs listed next to each other do not end up
+   * in the same shard.
+   */
+  @NotNull
+  static List<List<String>> splitIntoShards(@NotNull List<String> specs, int shardCount) {
+    final int shards = Math.max(1, Math.min(shardCount, specs.size()));
+    final List<List<String>> result = new ArrayList<>();
+    for (int i = 0; i < shards; i++) {
+      result.add(new ArrayList<>());
+    }
+    for (int i = 0; i < specs.size(); i++) {
+      result.get(i % shards).add(specs.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Exports only the given specs instead of the selected ones, e.g. for an incremental refresh.
+   */
+  @NotNull
+  public File loadProjectStructure(
+    @NotNull List<String> targetSpecs,
+    @NotNull Consumer<String> statusConsumer
   ) throws IOException, ExecutionException {
-    final File outputFile = FileUtil.createTempFile("pants_depmap_run", ".out");
-    final GeneralCommandLine command = getPantsExportCommand(outputFile, statusConsumer);
-    statusConsumer.consume("Resolving dependencies...");
+    statusConsumer.consume("Resolving dependencies of changed targets...");
     PantsMetrics.markExportStart();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      return exportTargetSpecs(targetSpecs);
+    }
+    finally {
+      PantsMetrics.markExportEnd();
+      PantsMetrics.recordImportPhase(PantsMetrics.IMPORT_PHASE_EXPORT, stopwatch);
+    }
+  }
+
+  @NotNull
+  private File exportTargetSpecs(@NotNull List<String> targetSpecs) throws IOException, ExecutionException {
+    final File outputFile = FileUtil.createTempFile("pants_depmap_run", ".out");
+    final GeneralCommandLine command = getPantsExportCommand(targetSpecs, outputFile);
     final ProcessOutput processOutput = getProcessOutput(command);
-    PantsMetrics.markExportEnd();
     if (processOutput.getStdout().contains("no such option")) {
       throw new ExternalSystemException("Pants doesn't have necessary APIs. Please upgrade your pants!");
     }
     if (processOutput.checkSuccess(LOG)) {
-      return FileUtil.loadFile(outputFile);
+      return outputFile;
     }
     else {
       throw new PantsExecutionException("Failed to update the project!", command.getCommandLineString("pants"), processOutput);
     }
   }
 
+  private boolean usesWorkdirLock() {
+    return PantsUtil.findPantsExecutable(getProjectPath())
+      .flatMap(file -> PantsOptions.getPantsOptions(file.getPath()).get(PantsConstants.PANTS_OPTION_LOCK))
+      .map(PantsConstants.PANTS_SERIALIZED_VALUE_TRUE::equals)
+      .orElse(false);
+  }
+
   private ProcessOutput getProcessOutput(
     @NotNull GeneralCommandLine command
   ) throws ExecutionException {
+    // A shard may get here after another one failed and the running processes were cancelled.
+    if (myCancelled) {
+      throw new ExecutionException("Cancelled: " + command.getCommandLineString());
+    }
     final Process process = command.createProcess();
     myProcesses.add(process);
+    // cancelAllProcesses may have run between the check above and the process being added.
+    if (myCancelled) {
+      myProcesses.remove(process);
+      process.destroy();
+      throw new ExecutionException("Cancelled: " + command.getCommandLineString());
+    }
     final ProcessOutput processOutput = PantsUtil.getCmdOutput(process, command.getCommandLineString(), null);
     myProcesses.remove(process);
     return processOutput;
   }
 
   @NotNull
-  private GeneralCommandLine getPantsExportCommand(final File outputFile, @NotNull Consumer<String> statusConsumer)
+  private GeneralCommandLine getPantsExportCommand(@NotNull List<String> targetSpecs, final File outputFile)
     throws IOException {
     final GeneralCommandLine commandLine = PantsUtil.defaultCommandLine(getProjectPath());
 
@@ -217,7 +374,7 @@ public class PantsCompileOptionsExecutor {
 
     final File targetSpecsFile = FileUtil.createTempFile("pants_target_specs", ".in");
     try (FileWriter targetSpecsFileWriter = new FileWriter(targetSpecsFile)) {
-      for (String targetSpec : getTargetSpecs()) {
+      for (String targetSpec : targetSpecs) {
         targetSpecsFileWriter.write(targetSpec);
         targetSpecsFileWriter.write('\n');
       }
@@ -260,6 +417,7 @@ public class PantsCompileOptionsExecutor {
    * @return if successfully canceled all running processes. false if failed and there were no processes to cancel.
    */
   public boolean cancelAllProcesses() {
+    myCancelled = true;
     if (myProcesses.isEmpty()) {
       return false;
     }
@@ -0,0 +1,422 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.model.IJRC;
+import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ContentRoot;
+import com.twitter.intellij.pants.service.project.model.LibraryInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoSnapshotReader;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoSnapshotWriter;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps a snapshot of the output of the last `pants export` of a set of target specs under the build root's .idea directory,
+ * so that a refresh where nothing relevant has changed does not need to run Pants at all.
+ * <p>
+ * An entry is looked up by the target specs, the Pants version, the export options and the contents of
+ * the Pants config and import rc files. It is only used if the BUILD files reachable from the specs are unchanged,
+ * i.e. the ones in the spec directories, under the recursive specs and in the directory of every exported target,
+ * and so are the directories under the source roots of the exported targets, as the globs of a target may match
+ * the sources of a new package. The files themselves are not compared, which is enough as the export only lists
+ * the directories of the sources.
+ */
+public class PantsExportCache {
+  private static final Logger LOG = Logger.getInstance(PantsExportCache.class);
+  private static final Gson gson = new Gson();
+
+  public static final String SYSTEM_PROPERTY_EXPORT_CACHE_DISABLE = "pants.export.cache.disable";
+
+  /**
+   * Bump this version if the layout of a cache entry changes.
+   */
+  private static final int FORMAT_VERSION = 4;
+  private static final int MAX_ENTRIES = 8;
+  /**
+   * Modification times are not more precise than this on some file systems.
+   */
+  private static final long MODIFICATION_TIME_RESOLUTION_MILLIS = 2000;
+
+  private static final String CACHE_DIR = "pants-export-cache";
+  private static final String SNAPSHOT_FILE = "project_info.bin";
+  private static final String MANIFEST_FILE = "manifest.json";
+
+  private final File myBuildRoot;
+  private final List<String> mySpecs;
+  private final File myEntryDir;
+
+  PantsExportCache(@NotNull File buildRoot, @NotNull List<String> specs, @NotNull String options) {
+    myBuildRoot = buildRoot;
+    mySpecs = specs;
+    final String key = FORMAT_VERSION + "\n" + options + "\n" + String.join("\n", specs);
+    myEntryDir = new File(getCacheDir(buildRoot), Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString());
+  }
+
+  /**
+   * @return the cache for the project of the executor, or nothing if the project is imported from a script
+   * or if the cache is disabled with the {@value SYSTEM_PROPERTY_EXPORT_CACHE_DISABLE} system property.
+   */
+  @NotNull
+  public static Optional<PantsExportCache> forExecutor(@NotNull PantsCompileOptionsExecutor executor) {
+    if (Boolean.getBoolean(SYSTEM_PROPERTY_EXPORT_CACHE_DISABLE) || PantsUtil.isExecutable(executor.getProjectPath())) {
+      return Optional.empty();
+    }
+    final Optional<String> pantsVersion = PantsUtil.findPantsExecutable(executor.getProjectPath())
+      .flatMap(exec -> PantsOptions.getPantsOptions(exec.getPath()).get("pants_version"));
+    if (!pantsVersion.isPresent()) {
+      return Optional.empty();
+    }
+    final File buildRoot = executor.getBuildRoot();
+    final String options = String.join(
+      "\n",
+      "pants_version=" + pantsVersion.get(),
+      "import_source_deps_as_jars=" + executor.getOptions().isImportSourceDepsAsJars(),
+      "libraries_sources_and_docs=" + executor.isResolveSourcesAndDocsForJars(),
+      IJRC.IMPORT_RC_FILENAME + "=" + PantsUtil.getCacheKeyHash(new File(buildRoot, IJRC.IMPORT_RC_FILENAME)),
+      PantsConstants.PANTS_INI + "=" + PantsUtil.getCacheKeyHash(new File(buildRoot, PantsConstants.PANTS_INI)),
+      PantsConstants.PANTS_TOML + "=" + PantsUtil.getCacheKeyHash(new File(buildRoot, PantsConstants.PANTS_TOML))
+    );
+    return Optional.of(new PantsExportCache(buildRoot, executor.getOptions().getSelectedTargetSpecs(), options));
+  }
+
+  @NotNull
+  private static File getCacheDir(@NotNull File buildRoot) {
+    return new File(new File(buildRoot, Project.DIRECTORY_STORE_FOLDER), CACHE_DIR);
+  }
+
+  /**
+   * @return the exported project structure if it is still up to date.
+   */
+  @NotNull
+  public Optional<ProjectInfo> load() {
+    return load(Collections.emptySet());
+  }
+
+  /**
+   * @param changedDirectories directories relative to the build root.
+   * @return the exported project structure if the BUILD files changed since the export, if any, are all in
+   * the given directories. These changes are not reflected in the result.
+   */
+  @NotNull
+  public Optional<ProjectInfo> loadOutdated(@NotNull Set<String> changedDirectories) {
+    return load(changedDirectories);
+  }
+
+  @NotNull
+  private Optional<ProjectInfo> load(@NotNull Set<String> changedDirectories) {
+    final File manifestFile = new File(myEntryDir, MANIFEST_FILE);
+    if (!manifestFile.isFile()) {
+      return Optional.empty();
+    }
+    try {
+      final Manifest manifest = gson.fromJson(FileUtil.loadFile(manifestFile, StandardCharsets.UTF_8), Manifest.class);
+      if (manifest == null || manifest.buildFiles == null || manifest.sourceTrees == null) {
+        return Optional.empty();
+      }
+      final Fingerprint fingerprint = fingerprint(manifest.directories, manifest.recursiveDirectories, manifest.sourceTrees.keySet());
+      final Optional<String> unexpectedChange = Sets.union(manifest.buildFiles.keySet(), fingerprint.buildFiles.keySet()).stream()
+        .filter(path -> !Objects.equals(manifest.buildFiles.get(path), fingerprint.buildFiles.get(path)))
+        .filter(path -> !changedDirectories.contains(getParentDirectory(path)))
+        .findFirst();
+      if (unexpectedChange.isPresent()) {
+        LOG.info(unexpectedChange.get() + " changed since the cached export of " + mySpecs);
+        return Optional.empty();
+      }
+      final Optional<String> changedSourceTree = manifest.sourceTrees.keySet().stream()
+        .filter(root -> !Objects.equals(manifest.sourceTrees.get(root), fingerprint.sourceTrees.get(root)))
+        .findFirst();
+      if (changedSourceTree.isPresent()) {
+        LOG.info("The directories under " + changedSourceTree.get() + " changed since the cached export of " + mySpecs);
+        return Optional.empty();
+      }
+      final ProjectInfo projectInfo = ProjectInfoSnapshotReader.read(new File(myEntryDir, SNAPSHOT_FILE));
+      final Optional<String> missingJar = findMissingJar(projectInfo);
+      if (missingJar.isPresent()) {
+        LOG.info("Cached export of " + mySpecs + " refers to the missing jar " + missingJar.get());
+        return Optional.empty();
+      }
+      // Keep recently used entries from being evicted.
+      manifestFile.setLastModified(System.currentTimeMillis());
+      LOG.info("Using the cached export of " + mySpecs);
+      return Optional.of(projectInfo);
+    }
+    catch (IOException | JsonSyntaxException e) {
+      LOG.warn("Failed to read the cached export in " + myEntryDir, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Saves the result of an export, unless a BUILD file it depends on was modified after the export started,
+   * as the output might not reflect that change.
+   *
+   * @param projectInfo the project structure parsed from the export output, i.e. of all its shards, before any modifier ran on it.
+   */
+  public void store(@NotNull ProjectInfo projectInfo, long exportStartMillis) {
+    final Set<String> directories = new TreeSet<>();
+    final Set<String> recursiveDirectories = new TreeSet<>();
+    for (String spec : mySpecs) {
+      final String trimmed = stripAddressPrefix(spec);
+      if (trimmed.endsWith("::")) {
+        recursiveDirectories.add(stripTrailingSlash(trimmed.substring(0, trimmed.length() - 2)));
+      }
+      else {
+        directories.add(getDirectory(trimmed));
+      }
+    }
+    for (String address : projectInfo.getTargets().keySet()) {
+      directories.add(getDirectory(stripAddressPrefix(address)));
+    }
+
+    try {
+      final Fingerprint fingerprint = fingerprint(directories, recursiveDirectories, getSourceRoots(projectInfo));
+      if (fingerprint.newestModification + MODIFICATION_TIME_RESOLUTION_MILLIS >= exportStartMillis) {
+        LOG.info("BUILD files changed during the export of " + mySpecs + ", not caching it");
+        return;
+      }
+      FileUtil.delete(myEntryDir);
+      Files.createDirectories(myEntryDir.toPath());
+      ProjectInfoSnapshotWriter.write(projectInfo, new File(myEntryDir, SNAPSHOT_FILE));
+      // The manifest is written last and atomically, an entry without one is never read.
+      final File manifestFile = new File(myEntryDir, MANIFEST_FILE);
+      final File tempManifestFile = new File(myEntryDir, MANIFEST_FILE + ".tmp");
+      final Manifest manifest = new Manifest(directories, recursiveDirectories, fingerprint.buildFiles, fingerprint.sourceTrees);
+      FileUtil.writeToFile(tempManifestFile, gson.toJson(manifest));
+      Files.move(tempManifestFile.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      evictOldEntries();
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to cache the export of " + mySpecs + " in " + myEntryDir, e);
+      FileUtil.delete(myEntryDir);
+    }
+  }
+
+  /**
+   * @return the directory relative to the build root of an address or a non recursive spec.
+   */
+  @NotNull
+  static String getDirectory(@NotNull String address) {
+    final int colon = address.indexOf(':');
+    return stripTrailingSlash(colon < 0 ? address : address.substring(0, colon));
+  }
+
+  @NotNull
+  private static String getParentDirectory(@NotNull String relativePath) {
+    final int slash = relativePath.lastIndexOf('/');
+    return slash < 0 ? "" : relativePath.substring(0, slash);
+  }
+
+  @NotNull
+  static String stripAddressPrefix(@NotNull String spec) {
+    final String trimmed = spec.trim();
+    return trimmed.startsWith("//") ? trimmed.substring(2) : trimmed;
+  }
+
+  @NotNull
+  static String stripTrailingSlash(@NotNull String path) {
+    return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+  }
+
+  /**
+   * @return the outermost package roots of the targets under the build root, relative to it.
+   */
+  @NotNull
+  private Set<String> getSourceRoots(@NotNull ProjectInfo projectInfo) {
+    final Path buildRoot = myBuildRoot.toPath().toAbsolutePath().normalize();
+    final Set<String> roots = new TreeSet<>();
+    for (TargetInfo targetInfo : projectInfo.getTargets().values()) {
+      for (ContentRoot root : targetInfo.getRoots()) {
+        if (root.getRawSourceRoot().isEmpty()) {
+          continue;
+        }
+        final Path path = buildRoot.resolve(root.getPackageRoot()).normalize();
+        if (path.startsWith(buildRoot)) {
+          roots.add(FileUtil.toSystemIndependentName(buildRoot.relativize(path).toString()));
+        }
+      }
+    }
+    final Set<String> result = new TreeSet<>();
+    for (String root : roots) {
+      final boolean nested = result.stream().anyMatch(parent -> parent.isEmpty() || root.startsWith(parent + "/"));
+      if (!nested) {
+        result.add(root);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private Fingerprint fingerprint(
+    @Nullable Collection<String> directories,
+    @Nullable Collection<String> recursiveDirectories,
+    @NotNull Collection<String> sourceRoots
+  ) throws IOException {
+    final Fingerprint fingerprint = new Fingerprint();
+    for (String sourceRoot : sourceRoots) {
+      fingerprint.sourceTrees.put(sourceRoot, hashDirectories(resolve(sourceRoot).toPath()));
+    }
+    if (directories != null) {
+      for (String directory : directories) {
+        final File[] children = resolve(directory).listFiles();
+        if (children == null) {
+          continue;
+        }
+        for (File child : children) {
+          if (PantsUtil.isBUILDFileName(child.getName()) && child.isFile()) {
+            fingerprint.add(myBuildRoot.toPath(), child.toPath());
+          }
+        }
+      }
+    }
+    if (recursiveDirectories != null) {
+      for (String directory : recursiveDirectories) {
+        final Path root = resolve(directory).toPath();
+        if (!Files.isDirectory(root)) {
+          continue;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            final Path name = dir.getFileName();
+            // Pants does not look for BUILD files in hidden directories, e.g. .git or .pants.d
+            return !dir.equals(root) && name != null && name.toString().startsWith(".")
+                   ? FileVisitResult.SKIP_SUBTREE
+                   : FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (attrs.isRegularFile() && PantsUtil.isBUILDFileName(file.getFileName().toString())) {
+              fingerprint.add(myBuildRoot.toPath(), file);
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+      }
+    }
+    return fingerprint;
+  }
+
+  /**
+   * @return a hash of the paths of the non hidden directories under the root, or an empty string if there is no such root.
+   */
+  @NotNull
+  private static String hashDirectories(@NotNull Path root) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return "";
+    }
+    final Set<String> directories = new TreeSet<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        final Path name = dir.getFileName();
+        if (!dir.equals(root) && name != null && name.toString().startsWith(".")) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        directories.add(FileUtil.toSystemIndependentName(root.relativize(dir).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return Hashing.sha256().hashString(String.join("\n", directories), StandardCharsets.UTF_8).toString();
+  }
+
+  @NotNull
+  private File resolve(@NotNull String relativePath) {
+    return relativePath.isEmpty() ? myBuildRoot : new File(myBuildRoot, relativePath);
+  }
+
+  @NotNull
+  private static Optional<String> findMissingJar(@NotNull ProjectInfo projectInfo) {
+    return projectInfo.getLibraries().values().stream()
+      .filter(libraryInfo -> libraryInfo != null)
+      .map(LibraryInfo::getContents)
+      .flatMap(contents -> contents.values().stream())
+      .filter(path -> path != null && !new File(path).exists())
+      .findFirst();
+  }
+
+  private void evictOldEntries() {
+    final File[] entries = getCacheDir(myBuildRoot).listFiles(File::isDirectory);
+    if (entries == null || entries.length <= MAX_ENTRIES) {
+      return;
+    }
+    Arrays.stream(entries)
+      .sorted(Comparator.comparingLong((File entry) -> new File(entry, MANIFEST_FILE).lastModified()).reversed())
+      .skip(MAX_ENTRIES)
+      .forEach(FileUtil::delete);
+  }
+
+  private static class Fingerprint {
+    private final Map<String, String> buildFiles = new TreeMap<>();
+    private final Map<String, String> sourceTrees = new TreeMap<>();
+    private long newestModification = 0;
+
+    private void add(@NotNull Path buildRoot, @NotNull Path buildFile) throws IOException {
+      final String relativePath = FileUtil.toSystemIndependentName(buildRoot.relativize(buildFile).toString());
+      if (buildFiles.containsKey(relativePath)) {
+        return;
+      }
+      newestModification = Math.max(newestModification, Files.getLastModifiedTime(buildFile).toMillis());
+      buildFiles.put(relativePath, Hashing.sha256().hashBytes(Files.readAllBytes(buildFile)).toString());
+    }
+  }
+
+  private static class Manifest {
+    @SerializedName("directories")
+    private final Set<String> directories;
+    @SerializedName("recursive_directories")
+    private final Set<String> recursiveDirectories;
+    @SerializedName("build_files")
+    private final Map<String, String> buildFiles;
+    @SerializedName("source_trees")
+    private final Map<String, String> sourceTrees;
+
+    private Manifest(
+      @NotNull Set<String> directories,
+      @NotNull Set<String> recursiveDirectories,
+      @NotNull Map<String, String> buildFiles,
+      @NotNull Map<String, String> sourceTrees
+    ) {
+      this.directories = directories;
+      this.recursiveDirectories = recursiveDirectories;
+      this.buildFiles = buildFiles;
+      this.sourceTrees = sourceTrees;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.projectRoots.Sdk;
+import com.twitter.intellij.pants.model.PantsOptions;
+import com.twitter.intellij.pants.model.SimpleExportResult;
+import com.twitter.intellij.pants.util.PantsSdkUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Starts the Pants queries of an import that do not depend on each other, i.e. `pants options` and the export
+ * without targets giving the JDK and the Pants version, in the background as soon as the import starts,
+ * so that they overlap with each other and with the main export instead of running one after another.
+ * <p>
+ * {@link PantsOptions} and {@link SimpleExportResult} cache their results per Pants executable,
+ * so the code needing them later just waits for the running query.
+ */
+public class PantsImportOrchestrator {
+  private static final Logger LOG = Logger.getInstance(PantsImportOrchestrator.class);
+
+  private static final int MAX_CONCURRENT_QUERIES = 2;
+  private static final ExecutorService queryPool = Executors.newFixedThreadPool(MAX_CONCURRENT_QUERIES, r -> {
+    final Thread thread = new Thread(r, "Pants-Import-Query");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final long myStartNanos = System.nanoTime();
+  private final Map<String, Long> myPhaseNanos = Collections.synchronizedMap(new LinkedHashMap<>());
+  private final String myPantsExecutable;
+  private final CompletableFuture<Void> myQueries;
+
+  private PantsImportOrchestrator(@NotNull String pantsExecutable) {
+    myPantsExecutable = pantsExecutable;
+    final CompletableFuture<PantsOptions> options =
+      CompletableFuture.supplyAsync(() -> time("options", () -> PantsOptions.getPantsOptions(pantsExecutable)), queryPool);
+    final CompletableFuture<SimpleExportResult> exportResult =
+      CompletableFuture.supplyAsync(() -> time("simple_export", () -> SimpleExportResult.getExportResult(pantsExecutable)), queryPool);
+    myQueries = CompletableFuture.allOf(options, exportResult);
+  }
+
+  @NotNull
+  public static PantsImportOrchestrator start(@NotNull String pantsExecutable) {
+    return new PantsImportOrchestrator(pantsExecutable);
+  }
+
+  /**
+   * Runs a phase of the import on the calling thread, while the queries keep running in the background.
+   */
+  public void run(@NotNull String phase, @NotNull Runnable runnable) {
+    time(phase, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  /**
+   * Waits for the queries the default JDK needs, then finds or creates it on the calling thread.
+   * That must be the import thread: creating a JDK runs a write action, which has to run in the modality
+   * of the import, e.g. while the import wizard is shown.
+   */
+  @NotNull
+  public Optional<Sdk> getDefaultJavaSdk() {
+    // If one of the queries failed, it is run again by the JDK lookup, which reports the failure as before.
+    myQueries.handle((result, error) -> null).join();
+    return time("jdk", () -> PantsSdkUtil.getDefaultJavaSdk(myPantsExecutable, null));
+  }
+
+  /**
+   * Logs how long each phase took, and how much wall time running them concurrently saved.
+   */
+  public void logTimings() {
+    final long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - myStartNanos);
+    final String phases;
+    final long sequentialMillis;
+    synchronized (myPhaseNanos) {
+      phases = myPhaseNanos.entrySet().stream()
+        .map(entry -> entry.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(entry.getValue()) + "ms")
+        .collect(Collectors.joining(", "));
+      sequentialMillis = TimeUnit.NANOSECONDS.toMillis(myPhaseNanos.values().stream().mapToLong(Long::longValue).sum());
+    }
+    LOG.info(String.format(
+      "Import took %dms instead of %dms one phase after another, %dms saved (%s)",
+      wallMillis, sequentialMillis, Math.max(0, sequentialMillis - wallMillis), phases
+    ));
+  }
+
+  private <T> T time(@NotNull String phase, @NotNull Supplier<T> supplier) {
+    final long start = System.nanoTime();
+    try {
+      return supplier.get();
+    }
+    finally {
+      myPhaseNanos.put(phase, System.nanoTime() - start);
+    }
+  }
+}
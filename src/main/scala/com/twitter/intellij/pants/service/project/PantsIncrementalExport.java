@@ -0,0 +1,169 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import com.twitter.intellij.pants.service.project.model.LibraryInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Updates the project structure of a previous export after some BUILD files changed, by exporting only
+ * the targets defined in the directories of those BUILD files and the targets depending on them.
+ */
+public class PantsIncrementalExport {
+  public static final String SYSTEM_PROPERTY_INCREMENTAL_EXPORT_DISABLE = "pants.export.incremental.disable";
+
+  /**
+   * Above this share of the previously exported targets, a full export is about as expensive as an incremental one.
+   */
+  private static final double MAX_REEXPORTED_SHARE = 0.5;
+
+  private final File myBuildRoot;
+  private final ProjectInfo myPrevious;
+  private final Set<String> myChangedDirectories;
+  private final List<String> mySpecs;
+
+  /**
+   * @param previous           the project structure of the previous export, before any modifier ran on it.
+   * @param changedDirectories directories relative to the build root of the BUILD files changed since that export.
+   * @param specs              the target specs of the import.
+   */
+  public PantsIncrementalExport(
+    @NotNull File buildRoot,
+    @NotNull ProjectInfo previous,
+    @NotNull Collection<String> changedDirectories,
+    @NotNull List<String> specs
+  ) {
+    myBuildRoot = buildRoot;
+    myPrevious = previous;
+    myChangedDirectories = new HashSet<>(changedDirectories);
+    mySpecs = specs;
+  }
+
+  /**
+   * @return the specs to export: every target in the changed directories, including the new ones,
+   * and all targets depending on them, directly or not. A changed directory is only exported if the previous export
+   * has a target in it or if an import spec covers it, the other ones are not part of the project. Nothing if that is too much for an incremental export to pay off.
+   */
+  @NotNull
+  public Optional<List<String>> getSpecsToExport() {
+    final Map<String, List<String>> dependees = new HashMap<>();
+    final Deque<String> queue = new ArrayDeque<>();
+    final Set<String> previousDirectories = new HashSet<>();
+    for (Map.Entry<String, TargetInfo> entry : myPrevious.getTargets().entrySet()) {
+      previousDirectories.add(PantsExportCache.getDirectory(PantsExportCache.stripAddressPrefix(entry.getKey())));
+      for (String dependency : entry.getValue().getTargets()) {
+        dependees.computeIfAbsent(dependency, key -> new ArrayList<>()).add(entry.getKey());
+      }
+      if (isInChangedDirectory(entry.getKey())) {
+        queue.add(entry.getKey());
+      }
+    }
+
+    final Set<String> affected = new HashSet<>(queue);
+    while (!queue.isEmpty()) {
+      for (String dependee : dependees.getOrDefault(queue.poll(), Collections.emptyList())) {
+        if (affected.add(dependee)) {
+          queue.add(dependee);
+        }
+      }
+    }
+    if (affected.size() > myPrevious.getTargets().size() * MAX_REEXPORTED_SHARE) {
+      return Optional.empty();
+    }
+
+    final Set<String> specs = new TreeSet<>();
+    for (String directory : myChangedDirectories) {
+      if (!previousDirectories.contains(directory) && mySpecs.stream().noneMatch(spec -> matchesSpec(directory + ":", spec))) {
+        continue;
+      }
+      // The targets of a directory without BUILD files any more are just removed.
+      final File[] buildFiles = new File(myBuildRoot, directory).listFiles((dir, name) -> PantsUtil.isBUILDFileName(name));
+      if (buildFiles != null && buildFiles.length > 0) {
+        specs.add((directory.isEmpty() ? "//" : directory) + ":");
+      }
+    }
+    for (String address : affected) {
+      if (!isInChangedDirectory(address)) {
+        specs.add(address);
+      }
+    }
+    return Optional.of(new ArrayList<>(specs));
+  }
+
+  /**
+   * Replaces the targets of the previous export that are in the changed directories, and the ones exported again,
+   * with the result of exporting {@link #getSpecsToExport()}.
+   * A target keeps being a target root only if it was one, or for a new target, if it matches one of the import specs.
+   *
+   * @return the previous project structure, updated.
+   */
+  @NotNull
+  public ProjectInfo splice(@NotNull ProjectInfo exported) {
+    final List<String> removed = new ArrayList<>();
+    for (String address : myPrevious.getTargets().keySet()) {
+      if (isInChangedDirectory(address) && !exported.getTargets().containsKey(address)) {
+        removed.add(address);
+      }
+    }
+    myPrevious.removeTargets(removed);
+
+    for (Map.Entry<String, TargetInfo> entry : exported.getTargets().entrySet()) {
+      final String address = entry.getKey();
+      final TargetInfo previousInfo = myPrevious.getTarget(address);
+      final boolean isTargetRoot = previousInfo != null
+                                   ? previousInfo.getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetRoot)
+                                   : mySpecs.stream().anyMatch(spec -> matchesSpec(address, spec));
+      for (TargetAddressInfo addressInfo : entry.getValue().getAddressInfos()) {
+        addressInfo.setIsTargetRoot(isTargetRoot);
+      }
+      myPrevious.addTarget(address, entry.getValue());
+    }
+    for (Map.Entry<String, LibraryInfo> entry : exported.getLibraries().entrySet()) {
+      myPrevious.addLibrary(entry.getKey(), entry.getValue());
+    }
+    return myPrevious;
+  }
+
+  private boolean isInChangedDirectory(@NotNull String address) {
+    return myChangedDirectories.contains(PantsExportCache.getDirectory(PantsExportCache.stripAddressPrefix(address)));
+  }
+
+  static boolean matchesSpec(@NotNull String address, @NotNull String spec) {
+    final String target = PantsExportCache.stripAddressPrefix(address);
+    final String trimmedSpec = PantsExportCache.stripAddressPrefix(spec);
+    final String directory = PantsExportCache.getDirectory(target);
+    if (trimmedSpec.endsWith("::")) {
+      final String specDirectory = PantsExportCache.stripTrailingSlash(trimmedSpec.substring(0, trimmedSpec.length() - 2));
+      return specDirectory.isEmpty() || directory.equals(specDirectory) || directory.startsWith(specDirectory + "/");
+    }
+    if (trimmedSpec.endsWith(":")) {
+      return directory.equals(PantsExportCache.stripTrailingSlash(trimmedSpec.substring(0, trimmedSpec.length() - 1)));
+    }
+    if (trimmedSpec.contains(":")) {
+      return target.equals(trimmedSpec);
+    }
+    // `path/to/dir` is short for `path/to/dir:dir`
+    final String specDirectory = PantsExportCache.stripTrailingSlash(trimmedSpec);
+    final String name = specDirectory.substring(specDirectory.lastIndexOf('/') + 1);
+    return target.equals(specDirectory + ":" + name);
+  }
+}
@@ -0,0 +1,274 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.ProjectKeys;
+import com.intellij.openapi.externalSystem.model.project.LibraryData;
+import com.intellij.openapi.externalSystem.model.project.LibraryPathType;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.project.Project;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoDiff;
+import com.twitter.intellij.pants.settings.PantsSettings;
+import com.twitter.intellij.pants.util.PantsScalaUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the module and library nodes the resolvers created for each target in the last import of a project,
+ * so that a re-import only runs the resolvers for the targets affected by the changes since then,
+ * see {@link ProjectInfoDiff#getAffectedTargets()}, and reuses the nodes of all the other targets.
+ * <p>
+ * Everything is resolved again if the project itself, a Scala library, the jars found on disk
+ * or the nodes created for the whole project, e.g. the Scala SDKs, changed.
+ * <p>
+ * Only the last import of each linked project is kept, until its IDE project is closed. The kept nodes are copies,
+ * and so are the ones added to the project node, as the nodes of an import are modified while it is committed.
+ * It is disabled by default, see {@value SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE}.
+ */
+public class PantsPartialResolve {
+  private static final Logger LOG = Logger.getInstance(PantsPartialResolve.class);
+
+  public static final String SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE = "pants.resolve.partial.enable";
+
+  // The last import, by linked project path.
+  private static final Map<String, PantsPartialResolve> lastResolves = new ConcurrentHashMap<>();
+
+  private final String myKey;
+  private final ProjectInfo myProjectInfo;
+  private final Set<String> myMissingJars;
+  private final Map<String, List<DataNode<?>>> myTargetNodes;
+  private final Set<String> myProjectNodes;
+
+  private PantsPartialResolve(
+    @NotNull String key,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> missingJars,
+    @NotNull Map<String, List<DataNode<?>>> targetNodes,
+    @NotNull Set<String> projectNodes
+  ) {
+    myKey = key;
+    myProjectInfo = projectInfo;
+    myMissingJars = missingJars;
+    myTargetNodes = targetNodes;
+    myProjectNodes = projectNodes;
+  }
+
+  /**
+   * @return what the nodes of an import depend on besides the project info, which must be the same to reuse them.
+   */
+  @NotNull
+  static String getKey(@NotNull PantsCompileOptionsExecutor executor, @NotNull DataNode<ProjectData> projectDataNode) {
+    return String.join(
+      "\n",
+      String.valueOf(PantsResolver.VERSION),
+      projectDataNode.getData().getLinkedExternalProjectPath(),
+      projectDataNode.getData().getIdeProjectFileDirectoryPath(),
+      executor.getBuildRoot().getPath(),
+      String.valueOf(executor.getOptions().isImportSourceDepsAsJars()),
+      Arrays.stream(PantsResolverExtension.EP_NAME.getExtensions())
+        .map(resolver -> resolver.getClass().getName())
+        .collect(Collectors.joining(","))
+    );
+  }
+
+  /**
+   * Adds the nodes of the project info to the project node, resolving only the targets changed since the last import.
+   *
+   * @return false if nothing was added because everything has to be resolved again.
+   */
+  static boolean resolve(
+    @NotNull String key,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> missingJars,
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull DataNode<ProjectData> projectDataNode
+  ) {
+    if (!Boolean.getBoolean(SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE)) {
+      return false;
+    }
+    final PantsPartialResolve lastResolve = lastResolves.get(projectDataNode.getData().getLinkedExternalProjectPath());
+    if (lastResolve == null || !lastResolve.myKey.equals(key)) {
+      return false;
+    }
+    if (!lastResolve.myMissingJars.equals(missingJars)) {
+      LOG.info("Resolving all targets, the library jars changed");
+      return false;
+    }
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(lastResolve.myProjectInfo, projectInfo);
+    if (diff.isProjectChanged() || diff.getChangedLibraries().stream().anyMatch(PantsScalaUtil::isScalaLibraryLib)) {
+      LOG.info("Resolving all targets, the project changed");
+      return false;
+    }
+    final Set<String> affectedTargets = diff.getAffectedTargets();
+
+    // The resolvers run on a copy of the project node, so that it is left as is if everything has to be resolved again.
+    final DataNode<ProjectData> scratchDataNode = new DataNode<>(ProjectKeys.PROJECT, projectDataNode.getData(), null);
+    for (DataNode<?> child : projectDataNode.getChildren()) {
+      addCopy(scratchDataNode, child);
+    }
+    final Collection<DataNode<?>> existingChildren = new ArrayList<>(scratchDataNode.getChildren());
+
+    // The modules of the unaffected targets, with their dependencies, so that the module dependencies are added as before.
+    final Map<String, DataNode<ModuleData>> modules = new HashMap<>();
+    for (Map.Entry<String, List<DataNode<?>>> entry : lastResolve.getReusedNodes(projectInfo, affectedTargets).entrySet()) {
+      for (DataNode<?> node : entry.getValue()) {
+        if (node.getData() instanceof ModuleData) {
+          modules.put(entry.getKey(), copyModule(node));
+        }
+      }
+    }
+    PantsResolver.runResolvers(projectInfo.subset(affectedTargets), executor, scratchDataNode, modules, Optional.empty());
+
+    final List<DataNode<?>> resolvedChildren = getAddedChildren(scratchDataNode, existingChildren);
+    final Set<String> projectNodes = new HashSet<>();
+    groupByTarget(resolvedChildren, projectInfo, projectNodes);
+    if (!projectNodes.equals(lastResolve.myProjectNodes)) {
+      LOG.info("Resolving all targets, the nodes of the project changed");
+      return false;
+    }
+
+    lastResolve.getReusedNodes(projectInfo, affectedTargets).values()
+      .forEach(nodes -> nodes.forEach(node -> projectDataNode.addChild(copy(node))));
+    resolvedChildren.forEach(projectDataNode::addChild);
+    LOG.info(String.format(
+      "Resolved %d of %d targets, %d added, %d changed, %d removed",
+      affectedTargets.size(), projectInfo.getTargets().size(),
+      diff.getAddedTargets().size(), diff.getChangedTargets().size(), diff.getRemovedTargets().size()
+    ));
+    return true;
+  }
+
+  /**
+   * Keeps the nodes the resolvers added to the project node for the next import.
+   *
+   * @param existingChildren the children of the project node before the resolvers ran.
+   */
+  static void store(
+    @NotNull String key,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> missingJars,
+    @NotNull DataNode<ProjectData> projectDataNode,
+    @NotNull Collection<DataNode<?>> existingChildren
+  ) {
+    final String linkedProjectPath = projectDataNode.getData().getLinkedExternalProjectPath();
+    if (!Boolean.getBoolean(SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE)) {
+      lastResolves.remove(linkedProjectPath);
+      return;
+    }
+    final Set<String> projectNodes = new HashSet<>();
+    final Map<String, List<DataNode<?>>> targetNodes =
+      groupByTarget(getAddedChildren(projectDataNode, existingChildren), projectInfo, projectNodes);
+    targetNodes.values().forEach(nodes -> nodes.replaceAll(PantsPartialResolve::copy));
+    lastResolves.put(linkedProjectPath, new PantsPartialResolve(key, projectInfo, missingJars, targetNodes, projectNodes));
+  }
+
+  /**
+   * Forgets the last imports of the linked projects of a closed project.
+   */
+  public static void unregisterProject(@NotNull Project project) {
+    PantsSettings.getInstance(project).getLinkedProjectsSettings()
+      .forEach(settings -> clear(settings.getExternalProjectPath()));
+  }
+
+  static void clear(@NotNull String linkedProjectPath) {
+    lastResolves.remove(linkedProjectPath);
+  }
+
+  @NotNull
+  private Map<String, List<DataNode<?>>> getReusedNodes(@NotNull ProjectInfo projectInfo, @NotNull Set<String> affectedTargets) {
+    final Map<String, List<DataNode<?>>> result = new LinkedHashMap<>();
+    for (Map.Entry<String, List<DataNode<?>>> entry : myTargetNodes.entrySet()) {
+      if (!affectedTargets.contains(entry.getKey()) && projectInfo.getTarget(entry.getKey()) != null) {
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private static List<DataNode<?>> getAddedChildren(@NotNull DataNode<?> dataNode, @NotNull Collection<DataNode<?>> existingChildren) {
+    final Set<DataNode<?>> existing = Collections.newSetFromMap(new IdentityHashMap<>());
+    existing.addAll(existingChildren);
+    return dataNode.getChildren().stream().filter(child -> !existing.contains(child)).collect(Collectors.toList());
+  }
+
+  /**
+   * @param projectNodes gets a description of each node which is not the module or library of a target.
+   * @return the module and library nodes of each target.
+   */
+  @NotNull
+  private static Map<String, List<DataNode<?>>> groupByTarget(
+    @NotNull List<DataNode<?>> nodes,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull Set<String> projectNodes
+  ) {
+    final Map<String, List<DataNode<?>>> result = new LinkedHashMap<>();
+    for (DataNode<?> node : nodes) {
+      final Object data = node.getData();
+      final String name = data instanceof ModuleData ? ((ModuleData) data).getId()
+                        : data instanceof LibraryData ? ((LibraryData) data).getExternalName()
+                        : null;
+      if (name != null && projectInfo.getTarget(name) != null) {
+        result.computeIfAbsent(name, targetName -> new ArrayList<>()).add(node);
+      }
+      else if (data instanceof LibraryData) {
+        projectNodes.add(node.getKey().getDataType() + " " + name + " " + new TreeSet<>(((LibraryData) data).getPaths(LibraryPathType.BINARY)));
+      }
+      else {
+        projectNodes.add(node.getKey().getDataType() + " " + (name != null ? name : data));
+      }
+    }
+    return result;
+  }
+
+  private static <T> void addCopy(@NotNull DataNode<?> parent, @NotNull DataNode<T> node) {
+    parent.createChild(node.getKey(), node.getData());
+  }
+
+  /**
+   * @return a node without a parent with the data of the given one and copies of its children.
+   */
+  @NotNull
+  private static <T> DataNode<T> copy(@NotNull DataNode<T> node) {
+    final DataNode<T> result = new DataNode<>(node.getKey(), node.getData(), null);
+    for (DataNode<?> child : node.getChildren()) {
+      result.addChild(copy(child));
+    }
+    return result;
+  }
+
+  /**
+   * @return a module node with the data and module dependencies of the given one, which is left as is.
+   */
+  @NotNull
+  private static DataNode<ModuleData> copyModule(@NotNull DataNode<?> moduleNode) {
+    final DataNode<ModuleData> result = new DataNode<>(ProjectKeys.MODULE, (ModuleData) moduleNode.getData(), null);
+    for (DataNode<?> child : moduleNode.getChildren()) {
+      if (ProjectKeys.MODULE_DEPENDENCY.equals(child.getKey())) {
+        addCopy(result, child);
+      }
+    }
+    return result;
+  }
+}
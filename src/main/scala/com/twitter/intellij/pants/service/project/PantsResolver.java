@@ -3,6 +3,7 @@
 
 package com.twitter.intellij.pants.service.project;
 
+import com.google.common.base.Stopwatch;
 import com.google.gson.JsonSyntaxException;
 import com.intellij.execution.ExecutionException;
 import com.intellij.execution.process.ProcessAdapter;
@@ -13,24 +14,37 @@ import com.intellij.openapi.externalSystem.model.ExternalSystemException;
 import com.intellij.openapi.externalSystem.model.ProjectKeys;
 import com.intellij.openapi.externalSystem.model.project.ModuleData;
 import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.util.Consumer;
 import com.twitter.intellij.pants.PantsBundle;
 import com.twitter.intellij.pants.PantsException;
+import com.twitter.intellij.pants.file.FileChangeTracker;
+import com.twitter.intellij.pants.metrics.PantsMetrics;
 import com.twitter.intellij.pants.model.SimpleExportResult;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
 import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
+import com.twitter.intellij.pants.service.project.model.FileExistenceCache;
+import com.twitter.intellij.pants.service.project.model.LibraryInfo;
 import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoStreamingParser;
 import com.twitter.intellij.pants.util.PantsConstants;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class PantsResolver {
   /**
@@ -52,10 +66,16 @@ public class PantsResolver {
 
   public static ProjectInfo parseProjectInfoFromJSON(@NotNull String data) throws JsonSyntaxException {
     final int jsonStart = data.indexOf("\n{");
-    if (jsonStart > 0) {
-      data = data.substring(jsonStart + 1);
+    try {
+      return ProjectInfoStreamingParser.parse(new StringReader(data.substring(Math.max(jsonStart + 1, 0))));
+    }
+    catch (IOException e) {
+      throw new JsonSyntaxException(e);
     }
-    return ProjectInfo.fromJson(data);
+  }
+
+  public static ProjectInfo parseProjectInfoFromJSON(@NotNull File exportFile) throws IOException, JsonSyntaxException {
+    return ProjectInfoStreamingParser.parse(exportFile);
   }
 
   @Nullable
@@ -68,52 +88,186 @@ public class PantsResolver {
     myProjectInfo = projectInfo;
   }
 
-  private void parse(final String output) {
-    myProjectInfo = null;
-    if (output.isEmpty()) throw new ExternalSystemException("Not output from pants");
+  private void parse(@NotNull List<File> exportFiles) throws IOException {
+    final Stopwatch stopwatch = Stopwatch.createStarted();
     try {
-      myProjectInfo = parseProjectInfoFromJSON(output);
+      parseExportFiles(exportFiles);
     }
-    catch (JsonSyntaxException e) {
-      LOG.warn("Can't parse output\n" + output, e);
-      throw new ExternalSystemException("Can't parse project structure!");
+    finally {
+      PantsMetrics.recordImportPhase(PantsMetrics.IMPORT_PHASE_PARSE, stopwatch);
     }
   }
 
+  private void parseExportFiles(@NotNull List<File> exportFiles) throws IOException {
+    myProjectInfo = null;
+    ProjectInfo projectInfo = null;
+    for (File exportFile : exportFiles) {
+      if (exportFile.length() == 0) throw new ExternalSystemException("Not output from pants");
+      try {
+        final ProjectInfo shardInfo = parseProjectInfoFromJSON(exportFile);
+        if (projectInfo == null) {
+          projectInfo = shardInfo;
+        }
+        else {
+          projectInfo.merge(shardInfo);
+        }
+      }
+      catch (JsonSyntaxException e) {
+        LOG.warn("Can't parse output in " + exportFile.getPath(), e);
+        throw new ExternalSystemException("Can't parse project structure!");
+      }
+    }
+    myProjectInfo = projectInfo;
+  }
+
   public void resolve(
     @NotNull Consumer<String> statusConsumer,
     @Nullable ProcessAdapter processAdapter
   ) {
     try {
-      String pantsExportResult = myExecutor.loadProjectStructure(statusConsumer, processAdapter);
-      parse(pantsExportResult);
+      final Optional<PantsExportCache> exportCache = PantsExportCache.forExecutor(myExecutor);
+      final Optional<ProjectInfo> cachedProjectInfo = exportCache.flatMap(PantsExportCache::load);
+      if (cachedProjectInfo.isPresent()) {
+        statusConsumer.consume("Using cached dependencies...");
+        myProjectInfo = cachedProjectInfo.get();
+        return;
+      }
+      // Read before the export, so that the BUILD files changed while it runs are still re-exported on the next refresh.
+      final Set<String> changedDirectories =
+        FileChangeTracker.getChangedBuildDirectories(myExecutor.getBuildRoot(), myExecutor.getProjectPath());
+      if (exportCache.isPresent() && !Boolean.getBoolean(PantsIncrementalExport.SYSTEM_PROPERTY_INCREMENTAL_EXPORT_DISABLE)) {
+        final Optional<ProjectInfo> refreshedProjectInfo = exportIncrementally(exportCache.get(), changedDirectories, statusConsumer);
+        if (refreshedProjectInfo.isPresent()) {
+          myProjectInfo = refreshedProjectInfo.get();
+          return;
+        }
+      }
+      final long exportStart = System.currentTimeMillis();
+      final List<File> pantsExportResults = myExecutor.loadProjectStructure(statusConsumer, processAdapter);
+      parse(pantsExportResults);
+      exportCache.ifPresent(cache -> {
+        cache.store(myProjectInfo, exportStart);
+        FileChangeTracker.clearChangedBuildDirectories(myExecutor.getBuildRoot(), myExecutor.getProjectPath(), changedDirectories);
+      });
     }
     catch (ExecutionException | IOException e) {
       throw new ExternalSystemException(e);
     }
   }
 
+  /**
+   * Re-exports only what the BUILD files changed since the cached export affect, and splices it into the cached export.
+   * The cache entry itself is left as is, so the changes keep being tracked until the next full export.
+   */
+  @NotNull
+  private Optional<ProjectInfo> exportIncrementally(
+    @NotNull PantsExportCache exportCache,
+    @NotNull Set<String> changedDirectories,
+    @NotNull Consumer<String> statusConsumer
+  ) throws IOException, ExecutionException {
+    if (changedDirectories.isEmpty()) {
+      return Optional.empty();
+    }
+    final Optional<ProjectInfo> previousProjectInfo = exportCache.loadOutdated(changedDirectories);
+    if (!previousProjectInfo.isPresent()) {
+      return Optional.empty();
+    }
+    final PantsIncrementalExport incrementalExport = new PantsIncrementalExport(
+      myExecutor.getBuildRoot(),
+      previousProjectInfo.get(),
+      changedDirectories,
+      myExecutor.getOptions().getSelectedTargetSpecs()
+    );
+    final Optional<List<String>> specs = incrementalExport.getSpecsToExport();
+    if (!specs.isPresent()) {
+      return Optional.empty();
+    }
+    if (specs.get().isEmpty()) {
+      // Only directories without BUILD files any more, whose targets nothing depends on.
+      final ProjectInfo nothingExported = new ProjectInfo();
+      nothingExported.setTargets(new HashMap<>());
+      nothingExported.setLibraries(new HashMap<>());
+      return Optional.of(incrementalExport.splice(nothingExported));
+    }
+    LOG.info("Exporting " + specs.get().size() + " specs affected by the BUILD files changed in " + changedDirectories);
+    parse(Collections.singletonList(myExecutor.loadProjectStructure(specs.get(), statusConsumer)));
+    return Optional.of(incrementalExport.splice(myProjectInfo));
+  }
+
   public void addInfoTo(@NotNull DataNode<ProjectData> projectInfoDataNode) {
     if (myProjectInfo == null) return;
 
 
     LOG.debug("Amount of targets before modifiers: " + myProjectInfo.getTargets().size());
     for (PantsProjectInfoModifierExtension modifier : PantsProjectInfoModifierExtension.EP_NAME.getExtensions()) {
-      modifier.modify(myProjectInfo, myExecutor, LOG);
+      PantsMetrics.timeImportPhase(
+        String.format(PantsMetrics.IMPORT_PHASE_MODIFIER, modifier.getClass().getSimpleName()),
+        () -> modifier.modify(myProjectInfo, myExecutor, LOG)
+      );
     }
     LOG.debug("Amount of targets after modifiers: " + myProjectInfo.getTargets().size());
+    PantsMetrics.recordImportCount(PantsMetrics.IMPORT_COUNT_TARGETS, myProjectInfo.getTargets().size());
+    PantsMetrics.recordImportCount(PantsMetrics.IMPORT_COUNT_LIBRARIES, myProjectInfo.getLibraries().size());
 
-    Optional<BuildGraph> buildGraph = constructBuildGraph(projectInfoDataNode);
+    Optional<BuildGraph> buildGraph =
+      PantsMetrics.timeImportPhase(PantsMetrics.IMPORT_PHASE_BUILD_GRAPH, () -> constructBuildGraph(projectInfoDataNode));
 
     PropertiesComponent.getInstance().setValues(PantsConstants.PANTS_AVAILABLE_TARGETS_KEY, myProjectInfo.getAvailableTargetTypes());
-    final Map<String, DataNode<ModuleData>> modules = new HashMap<>();
+    final Set<String> missingJars =
+      PantsMetrics.timeImportPhase(PantsMetrics.IMPORT_PHASE_LIBRARY_JARS, this::prefetchLibraryJars);
+    // The incremental import only creates the modules of some levels of the build graph, so it always resolves all targets.
+    final String resolveKey = PantsPartialResolve.getKey(myExecutor, projectInfoDataNode);
+    final List<DataNode<?>> existingChildren = new ArrayList<>(projectInfoDataNode.getChildren());
+    final boolean resolvedPartially = !buildGraph.isPresent() &&
+      PantsPartialResolve.resolve(resolveKey, myProjectInfo, missingJars, myExecutor, projectInfoDataNode);
+    if (!resolvedPartially) {
+      runResolvers(myProjectInfo, myExecutor, projectInfoDataNode, new HashMap<>(), buildGraph);
+    }
+    if (!buildGraph.isPresent()) {
+      PantsPartialResolve.store(resolveKey, myProjectInfo, missingJars, projectInfoDataNode, existingChildren);
+    }
+    final int amountOfModules = PantsUtil.findChildren(projectInfoDataNode, ProjectKeys.MODULE).size();
+    LOG.debug("Amount of modules created: " + amountOfModules);
+    PantsMetrics.recordImportCount(PantsMetrics.IMPORT_COUNT_MODULES, amountOfModules);
+  }
+
+  static void runResolvers(
+    @NotNull ProjectInfo projectInfo,
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull DataNode<ProjectData> projectInfoDataNode,
+    @NotNull Map<String, DataNode<ModuleData>> modules,
+    @NotNull Optional<BuildGraph> buildGraph
+  ) {
     for (PantsResolverExtension resolver : PantsResolverExtension.EP_NAME.getExtensions()) {
-      resolver.resolve(myProjectInfo, myExecutor, projectInfoDataNode, modules, buildGraph);
+      PantsMetrics.timeImportPhase(
+        String.format(PantsMetrics.IMPORT_PHASE_RESOLVER, resolver.getClass().getSimpleName()),
+        () -> resolver.resolve(projectInfo, executor, projectInfoDataNode, modules, buildGraph)
+      );
     }
-    if (LOG.isDebugEnabled()) {
-      final int amountOfModules = PantsUtil.findChildren(projectInfoDataNode, ProjectKeys.MODULE).size();
-      LOG.debug("Amount of modules created: " + amountOfModules);
+  }
+
+  /**
+   * Checks whether the jars of all libraries exist at once, so that the resolvers don't stat them one by one.
+   *
+   * @return the jars which don't exist.
+   */
+  @NotNull
+  private Set<String> prefetchLibraryJars() {
+    final List<String> jars = new ArrayList<>();
+    for (LibraryInfo libraryInfo : myProjectInfo.getLibraries().values()) {
+      if (libraryInfo == null) {
+        continue;
+      }
+      for (String jar : libraryInfo.getContents().values()) {
+        if (jar == null) {
+          continue;
+        }
+        jars.add(FileUtil.isAbsolute(jar) ? jar : myExecutor.getAbsolutePathFromWorkingDir(jar));
+      }
     }
+    final FileExistenceCache fileExistence = myProjectInfo.getFileExistenceCache();
+    fileExistence.prefetch(jars);
+    return jars.stream().filter(jar -> !fileExistence.exists(jar)).collect(Collectors.toSet());
   }
 
   private Optional<BuildGraph> constructBuildGraph(@NotNull DataNode<ProjectData> projectInfoDataNode) {
@@ -3,6 +3,7 @@
 
 package com.twitter.intellij.pants.service.project;
 
+import com.google.common.base.Stopwatch;
 import com.intellij.ProjectTopics;
 import com.intellij.execution.process.ProcessAdapter;
 import com.intellij.execution.process.ProcessEvent;
@@ -27,6 +28,7 @@ import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskNotifica
 import com.intellij.openapi.externalSystem.model.task.ExternalSystemTaskNotificationListener;
 import com.intellij.openapi.externalSystem.service.project.ExternalSystemProjectResolver;
 import com.intellij.openapi.externalSystem.util.ExternalSystemApiUtil;
+import com.intellij.openapi.module.ModifiableModuleModel;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
 import com.intellij.openapi.module.ModuleTypeId;
@@ -34,6 +36,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ModuleRootEvent;
 import com.intellij.openapi.roots.ModuleRootListener;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -42,12 +45,14 @@ import com.intellij.openapi.wm.ToolWindowId;
 import com.intellij.openapi.wm.ToolWindowManager;
 import com.intellij.util.messages.MessageBusConnection;
 import com.twitter.intellij.pants.metrics.PantsExternalMetricsListenerManager;
+import com.twitter.intellij.pants.metrics.PantsMetrics;
 import com.twitter.intellij.pants.projectview.PantsProjectPaneSelectInTarget;
 import com.twitter.intellij.pants.projectview.ProjectFilesViewPane;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.wave.PantsImportWaves;
 import com.twitter.intellij.pants.settings.PantsExecutionSettings;
 import com.twitter.intellij.pants.util.PantsConstants;
-import com.twitter.intellij.pants.util.PantsSdkUtil;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.jetbrains.annotations.NotNull;
@@ -56,6 +61,8 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -68,25 +75,50 @@ import java.util.stream.Collectors;
 public class PantsSystemProjectResolver implements ExternalSystemProjectResolver<PantsExecutionSettings> {
   protected static final Logger LOG = Logger.getInstance(PantsSystemProjectResolver.class);
 
+  /**
+   * Disposes the stale modules one by one, each firing its own root change, to compare with disposing them at once.
+   */
+  public static final String SYSTEM_PROPERTY_BATCHED_MODULE_DISPOSAL_DISABLE = "pants.modules.batched.disposal.disable";
+
   private final Map<ExternalSystemTaskId, PantsCompileOptionsExecutor> task2executor =
     new ConcurrentHashMap<>();
 
+  /**
+   * Disposes the modules of the project path which are not imported any more, e.g. after switching to other targets.
+   * They are disposed through a single modifiable model, so that its commit fires one root change for all of them.
+   */
   private static void clearPantsModules(@NotNull Project project, String projectPath, DataNode<ProjectData> projectDataNode) {
-    Runnable clearModules = () -> {
-      Set<String> importedModules = projectDataNode.getChildren().stream()
-        .map(node -> node.getData(ProjectKeys.MODULE))
-        .filter(Objects::nonNull)
-        .map(ModuleData::getInternalName)
-        .collect(Collectors.toSet());
+    final Set<String> importedModules = projectDataNode.getChildren().stream()
+      .map(node -> node.getData(ProjectKeys.MODULE))
+      .filter(Objects::nonNull)
+      .map(ModuleData::getInternalName)
+      .collect(Collectors.toSet());
+    final String linkedProjectPath = Paths.get(projectPath).normalize().toString();
 
-      Module[] modules = ModuleManager.getInstance(project).getModules();
-      for (Module module : modules) {
-        boolean hasPantsProjectPath = Objects.equals(module.getOptionValue(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH), Paths.get(projectPath).normalize().toString());
-        boolean isNotBeingImported = !importedModules.contains(module.getName());
-        if (hasPantsProjectPath && isNotBeingImported) {
-          ModuleManager.getInstance(project).disposeModule(module);
-        }
+    Runnable clearModules = () -> {
+      final Stopwatch stopwatch = Stopwatch.createStarted();
+      final ModuleManager moduleManager = ModuleManager.getInstance(project);
+      final List<Module> staleModules = Arrays.stream(moduleManager.getModules())
+        .filter(module -> Objects.equals(module.getOptionValue(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH), linkedProjectPath))
+        .filter(module -> !importedModules.contains(module.getName()))
+        .collect(Collectors.toList());
+      if (staleModules.isEmpty()) {
+        return;
+      }
+      final boolean batched = !Boolean.getBoolean(SYSTEM_PROPERTY_BATCHED_MODULE_DISPOSAL_DISABLE);
+      if (batched) {
+        final ModifiableModuleModel modifiableModel = moduleManager.getModifiableModel();
+        staleModules.forEach(modifiableModel::disposeModule);
+        modifiableModel.commit();
+      }
+      else {
+        staleModules.forEach(moduleManager::disposeModule);
       }
+      PantsMetrics.recordImportPhase(PantsMetrics.IMPORT_PHASE_CLEAR_MODULES, stopwatch);
+      LOG.info(String.format(
+        "Disposed %d stale modules %s in %dms on the EDT",
+        staleModules.size(), batched ? "at once" : "one by one", stopwatch.elapsed(TimeUnit.MILLISECONDS)
+      ));
     };
 
     Application application = ApplicationManager.getApplication();
@@ -105,6 +137,7 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     if (projectPath.startsWith(".pants.d")) {
       return null;
     }
+    PantsMetrics.markImportStart();
 
     checkForDifferentPantsExecutables(id, projectPath);
     final PantsCompileOptionsExecutor executor = PantsCompileOptionsExecutor.create(projectPath, settings);
@@ -203,14 +236,20 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     );
     final DataNode<ProjectData> projectDataNode = new DataNode<>(ProjectKeys.PROJECT, projectData, null);
 
-    PantsUtil.findPantsExecutable(executor.getProjectPath())
-      .flatMap(file -> PantsSdkUtil.getDefaultJavaSdk(file.getPath(), null))
-      .map(sdk -> new ProjectSdkData(sdk.getName()))
-      .ifPresent(sdk -> projectDataNode.createChild(ProjectSdkData.KEY, sdk));
+    // The JDK only needs the queries started here, which run while the project structure is exported.
+    final Optional<PantsImportOrchestrator> orchestrator = PantsUtil.findPantsExecutable(executor.getProjectPath())
+      .map(file -> PantsImportOrchestrator.start(file.getPath()));
 
+    final Ref<ProjectInfo> projectInfo = Ref.create();
     if (!isPreviewMode) {
       PantsExternalMetricsListenerManager.getInstance().logIsIncrementalImport(settings.incrementalImportDepth().isPresent());
-      resolveUsingPantsGoal(id, executor, listener, projectDataNode);
+      final Runnable resolve = () -> projectInfo.set(resolveUsingPantsGoal(id, executor, listener, projectDataNode));
+      if (orchestrator.isPresent()) {
+        orchestrator.get().run("export", resolve);
+      }
+      else {
+        resolve.run();
+      }
 
       if (!containsContentRoot(projectDataNode, executor.getProjectDir())) {
         // Add a module with content root as import project directory path.
@@ -233,7 +272,17 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
       }
     }
 
-    return projectDataNode;
+    orchestrator
+      .flatMap(PantsImportOrchestrator::getDefaultJavaSdk)
+      .map(sdk -> new ProjectSdkData(sdk.getName()))
+      .ifPresent(sdk -> projectDataNode.createChild(ProjectSdkData.KEY, sdk));
+    orchestrator.ifPresent(PantsImportOrchestrator::logTimings);
+
+    // The incremental import already limits the modules to some levels of the build graph.
+    if (projectInfo.isNull() || settings.incrementalImportDepth().isPresent()) {
+      return projectDataNode;
+    }
+    return PantsImportWaves.split(id.findProject(), projectInfo.get(), projectDataNode);
   }
 
   private boolean containsContentRoot(@NotNull DataNode<ProjectData> projectDataNode, @NotNull String path) {
@@ -249,7 +298,8 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
     return false;
   }
 
-  private void resolveUsingPantsGoal(
+  @Nullable
+  private ProjectInfo resolveUsingPantsGoal(
     @NotNull final ExternalSystemTaskId id,
     @NotNull PantsCompileOptionsExecutor executor,
     final ExternalSystemTaskNotificationListener listener,
@@ -267,6 +317,7 @@ public class PantsSystemProjectResolver implements ExternalSystemProjectResolver
       processAdapter
     );
     dependenciesResolver.addInfoTo(projectDataNode);
+    return dependenciesResolver.getProjectInfo();
   }
 
   @Override
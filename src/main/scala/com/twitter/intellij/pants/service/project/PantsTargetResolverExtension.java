@@ -0,0 +1,74 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * A resolver extension whose work for a target only depends on the target, once the modules are created.
+ * <p>
+ * The work for a target is split in two: {@link #prepare} builds its data without touching the data nodes,
+ * e.g. checking which jars exist, and the returned action adds that data to the data nodes.
+ * The targets are prepared concurrently on the common ForkJoin pool, while the actions run one after another
+ * in the order of the sorted targets, so the data nodes end up the same as when everything runs on one thread.
+ */
+public interface PantsTargetResolverExtension extends PantsResolverExtension {
+  String SYSTEM_PROPERTY_PARALLEL_RESOLVE_DISABLE = "pants.resolve.parallel.disable";
+
+  /**
+   * Called concurrently for different targets, so it must not change the data nodes or the modules.
+   *
+   * @return the action adding the data of the target to the data nodes, null if there is nothing to add.
+   */
+  @Nullable
+  Runnable prepare(
+    @NotNull ProjectInfo projectInfo,
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull DataNode<ProjectData> projectDataNode,
+    @NotNull Map<String, DataNode<ModuleData>> modules,
+    @NotNull String targetName,
+    @NotNull TargetInfo targetInfo
+  );
+
+  @Override
+  default void resolve(
+    @NotNull ProjectInfo projectInfo,
+    @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull DataNode<ProjectData> projectDataNode,
+    @NotNull Map<String, DataNode<ModuleData>> modules,
+    @NotNull Optional<BuildGraph> buildGraph
+  ) {
+    if (Boolean.getBoolean(SYSTEM_PROPERTY_PARALLEL_RESOLVE_DISABLE)) {
+      for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
+        final Runnable action = prepare(projectInfo, executor, projectDataNode, modules, entry.getKey(), entry.getValue());
+        if (action != null) {
+          action.run();
+        }
+      }
+      return;
+    }
+    // The parallel stream keeps the order of the sorted targets.
+    final List<Runnable> actions = projectInfo.getSortedTargets().parallelStream()
+      .map(entry -> prepare(projectInfo, executor, projectDataNode, modules, entry.getKey(), entry.getValue()))
+      .collect(Collectors.toList());
+    for (Runnable action : actions) {
+      if (action != null) {
+        action.run();
+      }
+    }
+  }
+}
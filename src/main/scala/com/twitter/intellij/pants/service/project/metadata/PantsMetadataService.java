@@ -24,6 +24,11 @@ import org.jetbrains.annotations.Nullable;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 
 public class PantsMetadataService implements ProjectDataService<TargetMetadata, Module> {
@@ -44,20 +49,68 @@ public class PantsMetadataService implements ProjectDataService<TargetMetadata,
   ) {
     // for existing projects. for new projects PantsSettings.defaultSettings will provide the version.
     PantsSettings.getInstance(project).setResolverVersion(PantsResolver.VERSION);
+    final String linkedProjectPath =
+      projectData != null ? Paths.get(projectData.getLinkedExternalProjectPath()).normalize().toString() : null;
+    final Map<String, String> interned = new ConcurrentHashMap<>();
+    // The options are serialized up front, off the modules, so that the write pass below only compares and stores strings.
+    final List<Map<String, String>> moduleOptions = toImport.parallelStream()
+      .map(node -> getModuleOptions(node.getData(), linkedProjectPath, interned))
+      .collect(Collectors.toList());
+
+    int index = 0;
     for (DataNode<TargetMetadata> node : toImport) {
-      final TargetMetadata metadata = node.getData();
-      final Module module = modelsProvider.findIdeModule(metadata.getModuleName());
-      if (module != null) {
-        module.setOption(ExternalSystemConstants.EXTERNAL_SYSTEM_ID_KEY, "pants"); // TODO: setOption deprecated https://github.com/JetBrains/intellij-community/blob/master/platform/core-api/src/com/intellij/openapi/module/Module.java#L88-L92
-        module.setOption(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY, PantsUtil.dehydrateTargetAddresses(metadata.getLibraryExcludes()));
-        module.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, PantsUtil.dehydrateTargetAddresses(metadata.getTargetAddresses()));
-        module.setOption(PantsConstants.PANTS_TARGET_ADDRESS_INFOS_KEY, gson.toJson(metadata.getTargetAddressInfoSet()));
-        module.setOption(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH, Paths.get(projectData.getLinkedExternalProjectPath()).normalize().toString());
-        ExternalSystemModulePropertyManager.getInstance(module).setExternalModuleType(PantsConstants.PANTS_TARGET_MODULE_TYPE);
+      final Map<String, String> options = moduleOptions.get(index++);
+      final Module module = modelsProvider.findIdeModule(node.getData().getModuleName());
+      if (module == null) {
+        continue;
+      }
+      for (Map.Entry<String, String> option : options.entrySet()) {
+        // Most modules keep their options across imports, and the module state only needs to change for the others.
+        if (!option.getValue().equals(module.getOptionValue(option.getKey()))) {
+          module.setOption(option.getKey(), option.getValue()); // TODO: setOption deprecated https://github.com/JetBrains/intellij-community/blob/master/platform/core-api/src/com/intellij/openapi/module/Module.java#L88-L92
+        }
+      }
+      final ExternalSystemModulePropertyManager propertyManager = ExternalSystemModulePropertyManager.getInstance(module);
+      if (!PantsConstants.PANTS_TARGET_MODULE_TYPE.equals(propertyManager.getExternalModuleType())) {
+        propertyManager.setExternalModuleType(PantsConstants.PANTS_TARGET_MODULE_TYPE);
       }
     }
   }
 
+  /**
+   * @param interned the values of the options of the other modules, so that equal values, e.g. of empty sets
+   *                 or of the linked project path, are kept once in memory.
+   * @return the options to set on the module of the metadata, in the format read by e.g. {@link PantsUtil#getTargetAddressesFromModule}.
+   */
+  @NotNull
+  static Map<String, String> getModuleOptions(
+    @NotNull TargetMetadata metadata,
+    @Nullable String linkedProjectPath,
+    @NotNull Map<String, String> interned
+  ) {
+    final Map<String, String> result = new LinkedHashMap<>();
+    result.put(ExternalSystemConstants.EXTERNAL_SYSTEM_ID_KEY, "pants");
+    result.put(
+      PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY,
+      intern(PantsUtil.dehydrateTargetAddresses(metadata.getLibraryExcludes()), interned)
+    );
+    result.put(
+      PantsConstants.PANTS_TARGET_ADDRESSES_KEY,
+      intern(PantsUtil.dehydrateTargetAddresses(metadata.getTargetAddresses()), interned)
+    );
+    result.put(PantsConstants.PANTS_TARGET_ADDRESS_INFOS_KEY, intern(gson.toJson(metadata.getTargetAddressInfoSet()), interned));
+    if (linkedProjectPath != null) {
+      result.put(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH, linkedProjectPath);
+    }
+    return result;
+  }
+
+  @NotNull
+  private static String intern(@NotNull String value, @NotNull Map<String, String> interned) {
+    final String existing = interned.putIfAbsent(value, value);
+    return existing != null ? existing : value;
+  }
+
   @NotNull
   @Override
   public Computable<Collection<Module>> computeOrphanData(
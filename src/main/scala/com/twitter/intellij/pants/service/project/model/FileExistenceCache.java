@@ -0,0 +1,65 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Answers whether files exist by listing their directories, each once, instead of checking every file.
+ * The jars of an import are spread over few directories, e.g. the ones of an ivy cache,
+ * which is a lot cheaper to list than to check file by file on a network file system.
+ * <p>
+ * Safe to use from several threads. It is meant to live as long as one import, since the files may change afterwards.
+ */
+public class FileExistenceCache {
+  // A directory that exists but can't be listed, so its files are checked one by one.
+  private static final Set<String> UNLISTABLE = Collections.unmodifiableSet(new HashSet<>());
+
+  private final Map<String, Set<String>> myDirectoryEntries = new ConcurrentHashMap<>();
+
+  /**
+   * Lists the directories of the files concurrently, so that checking them afterwards doesn't touch the file system.
+   */
+  public void prefetch(@NotNull Collection<String> paths) {
+    final List<String> directories = paths.stream()
+      .map(path -> new File(path).getParent())
+      .filter(Objects::nonNull)
+      .distinct()
+      .filter(directory -> !myDirectoryEntries.containsKey(directory))
+      .collect(Collectors.toList());
+    directories.parallelStream().forEach(directory -> myDirectoryEntries.put(directory, list(directory)));
+  }
+
+  public boolean exists(@NotNull String path) {
+    final File file = new File(path);
+    final String directory = file.getParent();
+    if (directory == null) {
+      return file.exists();
+    }
+    final Set<String> entries = myDirectoryEntries.computeIfAbsent(directory, FileExistenceCache::list);
+    return entries == UNLISTABLE ? file.exists() : entries.contains(file.getName());
+  }
+
+  @NotNull
+  private static Set<String> list(@NotNull String directory) {
+    final File file = new File(directory);
+    final String[] names = file.list();
+    if (names == null) {
+      return file.isDirectory() ? UNLISTABLE : Collections.emptySet();
+    }
+    return new HashSet<>(Arrays.asList(names));
+  }
+}
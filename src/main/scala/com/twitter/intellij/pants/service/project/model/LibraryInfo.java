@@ -22,6 +22,7 @@ public class LibraryInfo {
   }
 
   public LibraryInfo(@Nullable String defaultPath) {
+    this();
     contents.put(DEFAULT, defaultPath);
   }
 
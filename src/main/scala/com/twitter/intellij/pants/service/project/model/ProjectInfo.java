@@ -11,7 +11,6 @@ import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.model.TargetAddressInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.jetbrains.annotations.TestOnly;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -19,8 +18,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ProjectInfo {
   public static ProjectInfo fromJson(@NotNull String data) {
@@ -33,7 +35,6 @@ public class ProjectInfo {
     return projectInfo;
   }
 
-  @TestOnly
   public ProjectInfo() {
   }
 
@@ -42,6 +43,21 @@ public class ProjectInfo {
   protected Map<String, LibraryInfo> libraries;
   // name to info
   protected Map<String, TargetInfo> targets;
+  /**
+   * Target name to the names of the targets depending on it, so that removing or renaming a target
+   * only touches its dependees. Built on first use and kept up to date by the methods below,
+   * so dependencies of the targets of the project should be changed through them, e.g. {@link #addDependency}.
+   */
+  private transient Map<String, Set<String>> dependees;
+  /**
+   * Sorted views of the targets and libraries, shared by the resolvers of an import.
+   * Sorted on first use and dropped whenever a target or library is added or removed.
+   */
+  private transient volatile List<Map.Entry<String, TargetInfo>> sortedTargets;
+  private transient volatile List<Map.Entry<String, LibraryInfo>> sortedLibraries;
+  private transient volatile FileExistenceCache fileExistenceCache;
+  // See getLibraryVersions, dropped whenever a library is added.
+  private transient volatile Map<String, String> libraryVersions;
 
   /* This might need to be expanded to show all properties that
    * a target type can contain like:
@@ -62,7 +78,7 @@ public class ProjectInfo {
   protected PythonSetup python_setup = null;
 
   private static <T> List<Map.Entry<String, T>> getSortedEntries(Map<String, T> map) {
-    return ContainerUtil.sorted(
+    final List<Map.Entry<String, T>> sorted = ContainerUtil.sorted(
       map.entrySet(),
       new Comparator<Map.Entry<String, T>>() {
         @Override
@@ -71,10 +87,16 @@ public class ProjectInfo {
         }
       }
     );
+    return Collections.unmodifiableList(sorted);
   }
 
   public List<Map.Entry<String, LibraryInfo>> getSortedLibraries() {
-    return getSortedEntries(getLibraries());
+    List<Map.Entry<String, LibraryInfo>> result = sortedLibraries;
+    if (result == null) {
+      result = getSortedEntries(libraries);
+      sortedLibraries = result;
+    }
+    return result;
   }
 
   public Map<String, LibraryInfo> getLibraries() {
@@ -83,10 +105,17 @@ public class ProjectInfo {
 
   public void setLibraries(Map<String, LibraryInfo> libraries) {
     this.libraries = libraries;
+    this.sortedLibraries = null;
+    this.libraryVersions = null;
   }
 
   public List<Map.Entry<String, TargetInfo>> getSortedTargets() {
-    return getSortedEntries(getTargets());
+    List<Map.Entry<String, TargetInfo>> result = sortedTargets;
+    if (result == null) {
+      result = getSortedEntries(targets);
+      sortedTargets = result;
+    }
+    return result;
   }
 
   public Map<String, TargetInfo> getTargets() {
@@ -95,6 +124,48 @@ public class ProjectInfo {
 
   public void setTargets(Map<String, TargetInfo> targets) {
     this.targets = targets;
+    this.dependees = null;
+    this.sortedTargets = null;
+  }
+
+  /**
+   * @return the cache to check whether the jars of the libraries exist, shared by the resolvers of an import.
+   */
+  @NotNull
+  public FileExistenceCache getFileExistenceCache() {
+    FileExistenceCache result = fileExistenceCache;
+    if (result == null) {
+      synchronized (this) {
+        result = fileExistenceCache;
+        if (result == null) {
+          result = new FileExistenceCache();
+          fileExistenceCache = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a project with the given targets of this one and all of its libraries, sharing their infos.
+   */
+  @NotNull
+  public ProjectInfo subset(@NotNull Collection<String> targetNames) {
+    final ProjectInfo result = new ProjectInfo();
+    final Map<String, TargetInfo> subsetTargets = new HashMap<>();
+    for (String targetName : targetNames) {
+      final TargetInfo info = targets.get(targetName);
+      if (info != null) {
+        subsetTargets.put(targetName, info);
+      }
+    }
+    result.setTargets(subsetTargets);
+    result.setLibraries(libraries);
+    result.availableTargetTypes = availableTargetTypes;
+    result.version = version;
+    result.python_setup = python_setup;
+    result.fileExistenceCache = getFileExistenceCache();
+    return result;
   }
 
   @NotNull
@@ -107,28 +178,52 @@ public class ProjectInfo {
     return python_setup;
   }
 
+  /**
+   * @return the library with the id, or if it has no jars, the library of the highest other version of the same artifact.
+   */
   @Nullable
   public LibraryInfo getLibraries(@NotNull String libraryId) {
-    if (libraries.containsKey(libraryId) && libraries.get(libraryId).getDefault() != null) {
-      return libraries.get(libraryId);
+    final LibraryInfo libraryInfo = libraries.get(libraryId);
+    if (libraryInfo != null && libraryInfo.getDefault() != null) {
+      return libraryInfo;
     }
     int versionIndex = libraryId.lastIndexOf(':');
     if (versionIndex == -1) {
       return null;
     }
-    final String libraryName = libraryId.substring(0, versionIndex);
-    for (Map.Entry<String, LibraryInfo> libIdAndJars : libraries.entrySet()) {
-      final String currentLibraryId = libIdAndJars.getKey();
-      if (!StringUtil.startsWith(currentLibraryId, libraryName + ":")) {
-        continue;
-      }
-      final LibraryInfo currentInfo = libIdAndJars.getValue();
-      if (currentInfo != null) {
-        LOG.info("Using " + currentLibraryId + " instead of " + libraryId);
-        return currentInfo;
+    final String currentLibraryId = getLibraryVersions().get(libraryId.substring(0, versionIndex));
+    if (currentLibraryId == null) {
+      return null;
+    }
+    LOG.debug("Using " + currentLibraryId + " instead of " + libraryId);
+    return libraries.get(currentLibraryId);
+  }
+
+  /**
+   * @return the id of the library of the highest version, in natural order, by every prefix of library ids
+   * ending before a colon, e.g. by org:name. Libraries without jars are left out.
+   */
+  @NotNull
+  private Map<String, String> getLibraryVersions() {
+    Map<String, String> result = libraryVersions;
+    if (result == null) {
+      result = new HashMap<>();
+      for (Map.Entry<String, LibraryInfo> entry : libraries.entrySet()) {
+        if (entry.getValue() == null) {
+          continue;
+        }
+        final String libraryId = entry.getKey();
+        for (int i = libraryId.indexOf(':'); i != -1; i = libraryId.indexOf(':', i + 1)) {
+          result.merge(
+            libraryId.substring(0, i),
+            libraryId,
+            (current, other) -> StringUtil.naturalCompare(current, other) >= 0 ? current : other
+          );
+        }
       }
+      libraryVersions = result;
     }
-    return null;
+    return result;
   }
 
   @Nullable
@@ -137,7 +232,30 @@ public class ProjectInfo {
   }
 
   public void addTarget(String targetName, TargetInfo info) {
-    targets.put(targetName, info);
+    final TargetInfo previousInfo = targets.put(targetName, info);
+    sortedTargets = null;
+    if (previousInfo != null) {
+      unindexDependencies(targetName, previousInfo);
+    }
+    indexDependencies(targetName, info);
+  }
+
+  public void addDependency(@NotNull String targetName, @NotNull String dependencyName) {
+    final TargetInfo info = targets.get(targetName);
+    // A target never depends on itself.
+    if (info == null || targetName.equals(dependencyName)) {
+      return;
+    }
+    info.addDependency(dependencyName);
+    if (dependees != null) {
+      dependees.computeIfAbsent(dependencyName, name -> new HashSet<>()).add(targetName);
+    }
+  }
+
+  public void addLibrary(String libraryId, LibraryInfo info) {
+    libraries.put(libraryId, info);
+    sortedLibraries = null;
+    libraryVersions = null;
   }
 
   public void removeTargets(Collection<String> targetNames) {
@@ -153,16 +271,112 @@ public class ProjectInfo {
   }
 
   public void removeTarget(String targetName) {
-    targets.remove(targetName);
-    for (TargetInfo targetInfo : targets.values()) {
-      targetInfo.getTargets().remove(targetName);
+    final TargetInfo info = targets.remove(targetName);
+    if (info != null) {
+      sortedTargets = null;
+      unindexDependencies(targetName, info);
+    }
+    final Set<String> targetDependees = getDependees().remove(targetName);
+    if (targetDependees == null) {
+      return;
+    }
+    for (String dependee : targetDependees) {
+      final TargetInfo dependeeInfo = targets.get(dependee);
+      if (dependeeInfo != null) {
+        dependeeInfo.getTargets().remove(targetName);
+      }
     }
   }
 
   public void replaceDependency(String targetName, String newTargetName) {
-    for (TargetInfo targetInfo : targets.values()) {
-      targetInfo.replaceDependency(targetName, newTargetName);
+    if (targetName.equals(newTargetName)) {
+      return;
+    }
+    final Set<String> targetDependees = getDependees().remove(targetName);
+    if (targetDependees == null) {
+      return;
+    }
+    for (String dependee : targetDependees) {
+      final TargetInfo dependeeInfo = targets.get(dependee);
+      if (dependeeInfo != null && dependeeInfo.dependOn(targetName)) {
+        dependeeInfo.replaceDependency(targetName, newTargetName);
+        getDependees().computeIfAbsent(newTargetName, name -> new HashSet<>()).add(dependee);
+      }
+    }
+  }
+
+  /**
+   * @return the names of the targets depending on the target, in O(number of dependees).
+   */
+  @NotNull
+  public Set<String> getDependees(@NotNull String targetName) {
+    final Set<String> targetDependees = getDependees().get(targetName);
+    return targetDependees != null ? new HashSet<>(targetDependees) : Collections.emptySet();
+  }
+
+  @NotNull
+  private Map<String, Set<String>> getDependees() {
+    if (dependees == null) {
+      dependees = new HashMap<>();
+      for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+        indexDependencies(entry.getKey(), entry.getValue());
+      }
+    }
+    return dependees;
+  }
+
+  private void indexDependencies(@NotNull String targetName, @NotNull TargetInfo info) {
+    if (dependees == null) {
+      return;
+    }
+    for (String dependency : info.getTargets()) {
+      dependees.computeIfAbsent(dependency, name -> new HashSet<>()).add(targetName);
+    }
+  }
+
+  private void unindexDependencies(@NotNull String targetName, @NotNull TargetInfo info) {
+    if (dependees == null) {
+      return;
+    }
+    for (String dependency : info.getTargets()) {
+      final Set<String> dependencyDependees = dependees.get(dependency);
+      if (dependencyDependees != null) {
+        dependencyDependees.remove(targetName);
+      }
+    }
+  }
+
+  /**
+   * Adds the targets and libraries of another export of the same build root, e.g. one of a different set of specs.
+   * A target exported by both is kept once, and is a target root if it is one in either export.
+   */
+  public void merge(@NotNull ProjectInfo other) {
+    for (Map.Entry<String, TargetInfo> entry : other.getTargets().entrySet()) {
+      final TargetInfo existing = targets.putIfAbsent(entry.getKey(), entry.getValue());
+      if (existing == null) {
+        indexDependencies(entry.getKey(), entry.getValue());
+        continue;
+      }
+      final boolean isTargetRoot = entry.getValue().getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetRoot);
+      if (isTargetRoot) {
+        existing.getAddressInfos().forEach(addressInfo -> addressInfo.setIsTargetRoot(true));
+      }
+    }
+    for (Map.Entry<String, LibraryInfo> entry : other.getLibraries().entrySet()) {
+      libraries.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+    final Set<String> targetTypes = new LinkedHashSet<>(Arrays.asList(availableTargetTypes));
+    targetTypes.addAll(Arrays.asList(other.getAvailableTargetTypes()));
+    availableTargetTypes = targetTypes.toArray(new String[0]);
+    if (version == null) {
+      version = other.version;
+    }
+    if (python_setup == null) {
+      python_setup = other.python_setup;
     }
+    sortedTargets = null;
+    sortedLibraries = null;
+    libraryVersions = null;
   }
 
   private void initTargetAddresses() {
@@ -0,0 +1,175 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The targets and libraries that differ between two {@link ProjectInfo}s of the same project, e.g. the ones
+ * of two imports after the modifiers ran.
+ * <p>
+ * A target is changed if any of its own fields differs, or if one of its libraries resolves to other jars.
+ */
+public class ProjectInfoDiff {
+  private final Set<String> myAddedTargets = new HashSet<>();
+  private final Set<String> myRemovedTargets = new HashSet<>();
+  private final Set<String> myChangedTargets = new HashSet<>();
+  private final Set<String> myChangedLibraries = new HashSet<>();
+  private final Set<String> myAffectedTargets = new HashSet<>();
+  private final boolean myProjectChanged;
+
+  private ProjectInfoDiff(@NotNull ProjectInfo before, @NotNull ProjectInfo after) {
+    myProjectChanged = !Objects.equals(before.getVersion(), after.getVersion()) ||
+                       !Arrays.equals(before.getAvailableTargetTypes(), after.getAvailableTargetTypes()) ||
+                       !samePythonSetup(before.getPythonSetup(), after.getPythonSetup());
+
+    final Set<String> libraryIds = new HashSet<>(before.getLibraries().keySet());
+    libraryIds.addAll(after.getLibraries().keySet());
+    for (String libraryId : libraryIds) {
+      if (!Objects.equals(before.getLibraries().get(libraryId), after.getLibraries().get(libraryId))) {
+        myChangedLibraries.add(libraryId);
+      }
+    }
+
+    for (Map.Entry<String, TargetInfo> entry : after.getTargets().entrySet()) {
+      final TargetInfo previous = before.getTarget(entry.getKey());
+      if (previous == null) {
+        myAddedTargets.add(entry.getKey());
+      }
+      else if (!sameTarget(before, previous, after, entry.getValue())) {
+        myChangedTargets.add(entry.getKey());
+      }
+    }
+    for (String targetName : before.getTargets().keySet()) {
+      if (after.getTarget(targetName) == null) {
+        myRemovedTargets.add(targetName);
+      }
+    }
+
+    // The modules of the dependees refer to the modules of these targets, and only get an edge if there is none back.
+    myAffectedTargets.addAll(myAddedTargets);
+    myAffectedTargets.addAll(myChangedTargets);
+    for (String targetName : myAddedTargets) {
+      myAffectedTargets.addAll(after.getDependees(targetName));
+    }
+    for (String targetName : myChangedTargets) {
+      myAffectedTargets.addAll(after.getDependees(targetName));
+      myAffectedTargets.addAll(before.getDependees(targetName));
+    }
+    for (String targetName : myRemovedTargets) {
+      myAffectedTargets.addAll(before.getDependees(targetName));
+    }
+    myAffectedTargets.removeAll(myRemovedTargets);
+  }
+
+  @NotNull
+  public static ProjectInfoDiff compute(@NotNull ProjectInfo before, @NotNull ProjectInfo after) {
+    return new ProjectInfoDiff(before, after);
+  }
+
+  /**
+   * @return whether something else than targets and libraries changed, e.g. the Pants version or the Python setup.
+   */
+  public boolean isProjectChanged() {
+    return myProjectChanged;
+  }
+
+  public boolean isEmpty() {
+    return !myProjectChanged && myAddedTargets.isEmpty() && myRemovedTargets.isEmpty() &&
+           myChangedTargets.isEmpty() && myChangedLibraries.isEmpty();
+  }
+
+  @NotNull
+  public Set<String> getAddedTargets() {
+    return Collections.unmodifiableSet(myAddedTargets);
+  }
+
+  @NotNull
+  public Set<String> getRemovedTargets() {
+    return Collections.unmodifiableSet(myRemovedTargets);
+  }
+
+  @NotNull
+  public Set<String> getChangedTargets() {
+    return Collections.unmodifiableSet(myChangedTargets);
+  }
+
+  @NotNull
+  public Set<String> getChangedLibraries() {
+    return Collections.unmodifiableSet(myChangedLibraries);
+  }
+
+  /**
+   * @return the added and changed targets, and the targets which depend or depended on an added, changed or removed one.
+   */
+  @NotNull
+  public Set<String> getAffectedTargets() {
+    return Collections.unmodifiableSet(myAffectedTargets);
+  }
+
+  private static boolean sameTarget(
+    @NotNull ProjectInfo before,
+    @NotNull TargetInfo previous,
+    @NotNull ProjectInfo after,
+    @NotNull TargetInfo current
+  ) {
+    if (!previous.getTargets().equals(current.getTargets()) ||
+        !previous.getLibraries().equals(current.getLibraries()) ||
+        !previous.getExcludes().equals(current.getExcludes()) ||
+        !previous.getRoots().equals(current.getRoots()) ||
+        !describe(previous.getAddressInfos()).equals(describe(current.getAddressInfos()))) {
+      return false;
+    }
+    for (String libraryId : current.getLibraries()) {
+      if (!Objects.equals(before.getLibraries(libraryId), after.getLibraries(libraryId))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private static Set<String> describe(@NotNull Set<TargetAddressInfo> addressInfos) {
+    return addressInfos.stream()
+      .map(info -> String.join(
+        "\n",
+        info.getTargetAddress(),
+        info.getTargetType(),
+        info.getInternalPantsTargetType(),
+        info.getId(),
+        String.valueOf(info.isSynthetic()),
+        String.valueOf(info.isTargetRoot()),
+        String.valueOf(info.getGlobs().getGlobs())
+      ))
+      .collect(Collectors.toSet());
+  }
+
+  private static boolean samePythonSetup(@Nullable PythonSetup before, @Nullable PythonSetup after) {
+    if (before == null || after == null) {
+      return before == after;
+    }
+    if (!Objects.equals(before.getDefaultInterpreter(), after.getDefaultInterpreter()) ||
+        !before.getInterpreters().keySet().equals(after.getInterpreters().keySet())) {
+      return false;
+    }
+    for (Map.Entry<String, PythonInterpreterInfo> entry : before.getInterpreters().entrySet()) {
+      final PythonInterpreterInfo other = after.getInterpreters().get(entry.getKey());
+      if (!Objects.equals(entry.getValue().getBinary(), other.getBinary()) ||
+          !Objects.equals(entry.getValue().getChroot(), other.getChroot())) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
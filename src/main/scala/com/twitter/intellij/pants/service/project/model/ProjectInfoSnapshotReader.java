@@ -0,0 +1,212 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.twitter.intellij.pants.model.Globs;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a {@link ProjectInfo} written by {@link ProjectInfoSnapshotWriter}.
+ */
+public class ProjectInfoSnapshotReader {
+  private final DataInputStream myInput;
+  private String[] myStrings;
+
+  private ProjectInfoSnapshotReader(@NotNull InputStream input) {
+    myInput = new DataInputStream(new BufferedInputStream(input));
+  }
+
+  @NotNull
+  public static ProjectInfo read(@NotNull File file) throws IOException {
+    try (InputStream input = Files.newInputStream(file.toPath())) {
+      return read(input);
+    }
+  }
+
+  /**
+   * @throws IOException if the snapshot is truncated, corrupted or of another format version.
+   */
+  @NotNull
+  public static ProjectInfo read(@NotNull InputStream input) throws IOException {
+    try {
+      return new ProjectInfoSnapshotReader(input).readProjectInfo();
+    }
+    catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+      throw new IOException("Corrupted project snapshot", e);
+    }
+  }
+
+  @NotNull
+  private ProjectInfo readProjectInfo() throws IOException {
+    if (myInput.readInt() != ProjectInfoSnapshotWriter.MAGIC) {
+      throw new IOException("Not a project snapshot");
+    }
+    final int version = readVarInt();
+    if (version != ProjectInfoSnapshotWriter.FORMAT_VERSION) {
+      throw new IOException("Unsupported project snapshot version " + version);
+    }
+
+    myStrings = new String[readVarInt() + 1];
+    for (int i = 1; i < myStrings.length; i++) {
+      final byte[] bytes = new byte[readVarInt()];
+      myInput.readFully(bytes);
+      myStrings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    final ProjectInfo projectInfo = new ProjectInfo();
+    projectInfo.version = readString();
+    projectInfo.availableTargetTypes = readStrings().toArray(new String[0]);
+    projectInfo.python_setup = readPythonSetup();
+
+    final int librariesCount = readVarInt();
+    projectInfo.libraries = new HashMap<>(capacity(librariesCount));
+    for (int i = 0; i < librariesCount; i++) {
+      final String libraryId = readString();
+      final int jarsCount = readVarInt() - 1;
+      if (jarsCount < 0) {
+        projectInfo.libraries.put(libraryId, null);
+        continue;
+      }
+      final LibraryInfo libraryInfo = new LibraryInfo();
+      for (int j = 0; j < jarsCount; j++) {
+        libraryInfo.addJar(readString(), readString());
+      }
+      projectInfo.libraries.put(libraryId, libraryInfo);
+    }
+
+    final int targetsCount = readVarInt();
+    projectInfo.targets = new HashMap<>(capacity(targetsCount));
+    for (int i = 0; i < targetsCount; i++) {
+      final String address = readString();
+      projectInfo.targets.put(address, readTargetInfo());
+    }
+    return projectInfo;
+  }
+
+  @Nullable
+  private PythonSetup readPythonSetup() throws IOException {
+    final int interpretersCount = readVarInt() - 1;
+    if (interpretersCount < 0) {
+      return null;
+    }
+    final PythonSetup pythonSetup = new PythonSetup();
+    final String defaultInterpreter = readString();
+    if (defaultInterpreter != null) {
+      pythonSetup.setDefaultInterpreter(defaultInterpreter);
+    }
+    final Map<String, PythonInterpreterInfo> interpreters = new HashMap<>(capacity(interpretersCount));
+    for (int i = 0; i < interpretersCount; i++) {
+      final String name = readString();
+      final PythonInterpreterInfo info = new PythonInterpreterInfo();
+      final String binary = readString();
+      if (binary != null) {
+        info.setBinary(binary);
+      }
+      final String chroot = readString();
+      if (chroot != null) {
+        info.setChroot(chroot);
+      }
+      interpreters.put(name, info);
+    }
+    pythonSetup.setInterpreters(interpreters);
+    return pythonSetup;
+  }
+
+  @NotNull
+  private TargetInfo readTargetInfo() throws IOException {
+    final int addressInfosCount = readVarInt();
+    final Set<TargetAddressInfo> addressInfos = new HashSet<>(capacity(addressInfosCount));
+    for (int i = 0; i < addressInfosCount; i++) {
+      final TargetAddressInfo addressInfo = new TargetAddressInfo();
+      addressInfo.setTargetAddress(readString());
+      final String targetType = readString();
+      if (targetType != null) {
+        addressInfo.setTargetType(targetType);
+      }
+      final String pantsTargetType = readString();
+      if (pantsTargetType != null) {
+        addressInfo.setPantsTargetType(pantsTargetType);
+      }
+      addressInfo.setId(readString());
+      final int flags = myInput.readUnsignedByte();
+      addressInfo.setIsSynthetic((flags & 1) != 0);
+      addressInfo.setIsTargetRoot((flags & 2) != 0);
+      final List<String> globs = readStrings();
+      if (!globs.isEmpty()) {
+        final Globs targetGlobs = new Globs();
+        targetGlobs.setGlobs(globs);
+        addressInfo.setGlobs(targetGlobs);
+      }
+      addressInfos.add(addressInfo);
+    }
+
+    final int dependenciesCount = readVarInt();
+    final Set<String> targets = new HashSet<>(capacity(dependenciesCount));
+    int index = 0;
+    for (int i = 0; i < dependenciesCount; i++) {
+      index += readVarInt();
+      targets.add(myStrings[index]);
+    }
+    final Set<String> libraries = new HashSet<>(readStrings());
+    final Set<String> excludes = new HashSet<>(readStrings());
+    final int rootsCount = readVarInt();
+    final Set<ContentRoot> roots = new HashSet<>(capacity(rootsCount));
+    for (int i = 0; i < rootsCount; i++) {
+      final String sourceRoot = readString();
+      final String packagePrefix = readString();
+      roots.add(new ContentRoot(sourceRoot != null ? sourceRoot : "", packagePrefix != null ? packagePrefix : ""));
+    }
+    return new TargetInfo(addressInfos, targets, libraries, excludes, roots);
+  }
+
+  @NotNull
+  private List<String> readStrings() throws IOException {
+    final int count = readVarInt();
+    final List<String> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final String value = readString();
+      if (value != null) {
+        result.add(value);
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private String readString() throws IOException {
+    return myStrings[readVarInt()];
+  }
+
+  private int readVarInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final int b = myInput.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in project snapshot");
+  }
+
+  private static int capacity(int size) {
+    return Math.max(16, (int)(size / 0.75f) + 1);
+  }
+}
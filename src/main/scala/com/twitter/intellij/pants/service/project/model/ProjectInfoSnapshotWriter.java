@@ -0,0 +1,213 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes a {@link ProjectInfo} in a compact binary format, read back by {@link ProjectInfoSnapshotReader}.
+ * <p>
+ * Every string (addresses, paths, library ids, ...) is stored once in a table at the start of the snapshot
+ * and referred to by its varint encoded index afterwards, with 0 standing for null.
+ * The dependencies of a target are stored as sorted, delta encoded string indices.
+ */
+public class ProjectInfoSnapshotWriter {
+  static final int MAGIC = 0x50495331; // "PIS1"
+  /**
+   * Bump this version if the format changes. Snapshots of other versions are rejected by the reader.
+   */
+  static final int FORMAT_VERSION = 1;
+
+  private final DataOutputStream myOutput;
+  private final Map<String, Integer> myStrings = new LinkedHashMap<>();
+
+  private ProjectInfoSnapshotWriter(@NotNull OutputStream output) {
+    myOutput = new DataOutputStream(new BufferedOutputStream(output));
+  }
+
+  public static void write(@NotNull ProjectInfo projectInfo, @NotNull File file) throws IOException {
+    try (OutputStream output = Files.newOutputStream(file.toPath())) {
+      write(projectInfo, output);
+    }
+  }
+
+  public static void write(@NotNull ProjectInfo projectInfo, @NotNull OutputStream output) throws IOException {
+    final ProjectInfoSnapshotWriter writer = new ProjectInfoSnapshotWriter(output);
+    writer.collectStrings(projectInfo);
+    writer.writeProjectInfo(projectInfo);
+    writer.myOutput.flush();
+  }
+
+  private void collectStrings(@NotNull ProjectInfo projectInfo) {
+    // Addresses come first, so that the most frequent references get the shortest varints.
+    addStrings(projectInfo.targets.keySet());
+    addString(projectInfo.version);
+    addStrings(Arrays.asList(projectInfo.availableTargetTypes));
+    final PythonSetup pythonSetup = projectInfo.python_setup;
+    if (pythonSetup != null) {
+      addString(pythonSetup.getDefaultInterpreter());
+      for (Map.Entry<String, PythonInterpreterInfo> entry : pythonSetup.getInterpreters().entrySet()) {
+        addString(entry.getKey());
+        addString(entry.getValue().getBinary());
+        addString(entry.getValue().getChroot());
+      }
+    }
+    for (Map.Entry<String, LibraryInfo> entry : projectInfo.libraries.entrySet()) {
+      addString(entry.getKey());
+      if (entry.getValue() != null) {
+        for (Map.Entry<String, String> jar : entry.getValue().getContents().entrySet()) {
+          addString(jar.getKey());
+          addString(jar.getValue());
+        }
+      }
+    }
+    for (TargetInfo targetInfo : projectInfo.targets.values()) {
+      addStrings(targetInfo.getTargets());
+      addStrings(targetInfo.getLibraries());
+      addStrings(targetInfo.getExcludes());
+      for (ContentRoot root : targetInfo.getRoots()) {
+        addString(root.getRawSourceRoot());
+        addString(root.getPackagePrefix());
+      }
+      for (TargetAddressInfo addressInfo : targetInfo.getAddressInfos()) {
+        addString(addressInfo.getTargetAddress());
+        addString(addressInfo.getTargetType());
+        addString(addressInfo.getInternalPantsTargetType());
+        addString(addressInfo.getId());
+        addStrings(addressInfo.getGlobs().getGlobs());
+      }
+    }
+  }
+
+  private void addStrings(@NotNull Collection<String> values) {
+    for (String value : values) {
+      addString(value);
+    }
+  }
+
+  private void addString(@Nullable String value) {
+    if (value != null) {
+      myStrings.putIfAbsent(value, myStrings.size() + 1);
+    }
+  }
+
+  private void writeProjectInfo(@NotNull ProjectInfo projectInfo) throws IOException {
+    myOutput.writeInt(MAGIC);
+    writeVarInt(FORMAT_VERSION);
+
+    writeVarInt(myStrings.size());
+    for (String value : myStrings.keySet()) {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      myOutput.write(bytes);
+    }
+
+    writeString(projectInfo.version);
+    writeStrings(Arrays.asList(projectInfo.availableTargetTypes));
+    writePythonSetup(projectInfo.python_setup);
+
+    writeVarInt(projectInfo.libraries.size());
+    for (Map.Entry<String, LibraryInfo> entry : projectInfo.libraries.entrySet()) {
+      writeString(entry.getKey());
+      final LibraryInfo libraryInfo = entry.getValue();
+      if (libraryInfo == null) {
+        writeVarInt(0);
+        continue;
+      }
+      writeVarInt(libraryInfo.getContents().size() + 1);
+      for (Map.Entry<String, String> jar : libraryInfo.getContents().entrySet()) {
+        writeString(jar.getKey());
+        writeString(jar.getValue());
+      }
+    }
+
+    writeVarInt(projectInfo.targets.size());
+    for (Map.Entry<String, TargetInfo> entry : projectInfo.targets.entrySet()) {
+      writeString(entry.getKey());
+      writeTargetInfo(entry.getValue());
+    }
+  }
+
+  private void writePythonSetup(@Nullable PythonSetup pythonSetup) throws IOException {
+    if (pythonSetup == null) {
+      writeVarInt(0);
+      return;
+    }
+    writeVarInt(pythonSetup.getInterpreters().size() + 1);
+    writeString(pythonSetup.getDefaultInterpreter());
+    for (Map.Entry<String, PythonInterpreterInfo> entry : pythonSetup.getInterpreters().entrySet()) {
+      writeString(entry.getKey());
+      writeString(entry.getValue().getBinary());
+      writeString(entry.getValue().getChroot());
+    }
+  }
+
+  private void writeTargetInfo(@NotNull TargetInfo targetInfo) throws IOException {
+    writeVarInt(targetInfo.getAddressInfos().size());
+    for (TargetAddressInfo addressInfo : targetInfo.getAddressInfos()) {
+      writeString(addressInfo.getTargetAddress());
+      writeString(addressInfo.getTargetType());
+      writeString(addressInfo.getInternalPantsTargetType());
+      writeString(addressInfo.getId());
+      myOutput.writeByte((addressInfo.isSynthetic() ? 1 : 0) | (addressInfo.isTargetRoot() ? 2 : 0));
+      writeStrings(addressInfo.getGlobs().getGlobs());
+    }
+    writeAdjacency(targetInfo.getTargets());
+    writeStrings(targetInfo.getLibraries());
+    writeStrings(targetInfo.getExcludes());
+    writeVarInt(targetInfo.getRoots().size());
+    for (ContentRoot root : targetInfo.getRoots()) {
+      writeString(root.getRawSourceRoot());
+      writeString(root.getPackagePrefix());
+    }
+  }
+
+  private void writeAdjacency(@NotNull Collection<String> addresses) throws IOException {
+    final int[] indices = new int[addresses.size()];
+    int i = 0;
+    for (String address : addresses) {
+      indices[i++] = myStrings.get(address);
+    }
+    Arrays.sort(indices);
+    writeVarInt(indices.length);
+    int previous = 0;
+    for (int index : indices) {
+      writeVarInt(index - previous);
+      previous = index;
+    }
+  }
+
+  private void writeStrings(@NotNull Collection<String> values) throws IOException {
+    writeVarInt(values.size());
+    for (String value : values) {
+      writeString(value);
+    }
+  }
+
+  private void writeString(@Nullable String value) throws IOException {
+    writeVarInt(value == null ? 0 : myStrings.get(value));
+  }
+
+  private void writeVarInt(int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      myOutput.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    myOutput.writeByte(value);
+  }
+}
@@ -0,0 +1,379 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.twitter.intellij.pants.model.Globs;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds {@link ProjectInfo} directly from the output of `pants export` with a {@link JsonReader},
+ * so neither the raw json text nor an intermediate Gson tree is ever held in memory.
+ * <p>
+ * Fields that the plugin does not use (e.g. jvm platforms, zinc args) are skipped without being materialized,
+ * and the addresses repeated across dependency lists share one String instance.
+ * <p>
+ * The result is equivalent to {@link ProjectInfo#fromJson(String)}.
+ */
+public class ProjectInfoStreamingParser {
+  private final JsonReader myReader;
+  private final Map<String, String> myStrings = new HashMap<>();
+
+  private ProjectInfoStreamingParser(@NotNull Reader reader) {
+    myReader = new JsonReader(reader);
+    // Be as forgiving as Gson#fromJson.
+    myReader.setLenient(true);
+  }
+
+  @NotNull
+  public static ProjectInfo parse(@NotNull File exportFile) throws IOException, JsonSyntaxException {
+    try (BufferedReader reader =
+           new BufferedReader(new InputStreamReader(Files.newInputStream(exportFile.toPath()), StandardCharsets.UTF_8))) {
+      skipToJsonStart(reader);
+      return parse(reader);
+    }
+  }
+
+  @NotNull
+  public static ProjectInfo parse(@NotNull Reader reader) throws IOException, JsonSyntaxException {
+    try {
+      return new ProjectInfoStreamingParser(reader).readProjectInfo();
+    }
+    catch (IllegalStateException | NumberFormatException e) {
+      // JsonReader reports unexpected tokens with IllegalStateException.
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  /**
+   * Pants may print some log lines before the json itself, so skip everything up to the first line starting with '{'.
+   */
+  private static void skipToJsonStart(@NotNull BufferedReader reader) throws IOException {
+    while (true) {
+      reader.mark(1);
+      final int c = reader.read();
+      if (c == -1) {
+        return;
+      }
+      if (c == '{') {
+        reader.reset();
+        return;
+      }
+      if (c != '\n' && reader.readLine() == null) {
+        return;
+      }
+    }
+  }
+
+  @NotNull
+  private ProjectInfo readProjectInfo() throws IOException {
+    final ProjectInfo projectInfo = new ProjectInfo();
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      switch (myReader.nextName()) {
+        case "version":
+          projectInfo.version = nextStringOrNull();
+          break;
+        case "targets":
+          projectInfo.targets = readTargets();
+          break;
+        case "libraries":
+          projectInfo.libraries = readLibraries();
+          break;
+        case "available_target_types":
+          projectInfo.availableTargetTypes = readStringList().toArray(new String[0]);
+          break;
+        case "python_setup":
+          projectInfo.python_setup = readPythonSetup();
+          break;
+        default:
+          myReader.skipValue();
+      }
+    }
+    myReader.endObject();
+    if (projectInfo.targets == null) {
+      projectInfo.targets = new HashMap<>();
+    }
+    if (projectInfo.libraries == null) {
+      projectInfo.libraries = new HashMap<>();
+    }
+    return projectInfo;
+  }
+
+  @NotNull
+  private Map<String, TargetInfo> readTargets() throws IOException {
+    final Map<String, TargetInfo> targets = new HashMap<>();
+    if (skipNull()) {
+      return targets;
+    }
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      final String address = intern(myReader.nextName());
+      targets.put(address, readTarget(address));
+    }
+    myReader.endObject();
+    return targets;
+  }
+
+  @NotNull
+  private TargetInfo readTarget(@NotNull String address) throws IOException {
+    final TargetAddressInfo addressInfo = new TargetAddressInfo();
+    addressInfo.setTargetAddress(address);
+    Set<String> targets = Collections.emptySet();
+    Set<String> libraries = Collections.emptySet();
+    Set<String> excludes = Collections.emptySet();
+    Set<ContentRoot> roots = Collections.emptySet();
+
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      switch (myReader.nextName()) {
+        case "targets":
+          targets = new HashSet<>(readStringList());
+          break;
+        case "libraries":
+          libraries = new HashSet<>(readStringList());
+          break;
+        case "excludes":
+          excludes = new HashSet<>(readStringList());
+          break;
+        case "roots":
+          roots = readRoots();
+          break;
+        case "target_type":
+          final String targetType = nextStringOrNull();
+          if (targetType != null) {
+            addressInfo.setTargetType(targetType);
+          }
+          break;
+        case "pants_target_type":
+          final String pantsTargetType = nextStringOrNull();
+          if (pantsTargetType != null) {
+            addressInfo.setPantsTargetType(intern(pantsTargetType));
+          }
+          break;
+        case "is_synthetic":
+          addressInfo.setIsSynthetic(nextBooleanOrFalse());
+          break;
+        case "is_target_root":
+          addressInfo.setIsTargetRoot(nextBooleanOrFalse());
+          break;
+        case "id":
+          addressInfo.setId(nextStringOrNull());
+          break;
+        case "globs":
+          addressInfo.setGlobs(readGlobs());
+          break;
+        default:
+          myReader.skipValue();
+      }
+    }
+    myReader.endObject();
+
+    return new TargetInfo(
+      new HashSet<>(Collections.singleton(addressInfo)),
+      targets,
+      libraries,
+      excludes,
+      roots
+    );
+  }
+
+  @Nullable
+  private Globs readGlobs() throws IOException {
+    if (skipNull()) {
+      return null;
+    }
+    final Globs globs = new Globs();
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      if ("globs".equals(myReader.nextName())) {
+        globs.setGlobs(readStringList());
+      }
+      else {
+        myReader.skipValue();
+      }
+    }
+    myReader.endObject();
+    return globs;
+  }
+
+  @NotNull
+  private Set<ContentRoot> readRoots() throws IOException {
+    final Set<ContentRoot> roots = new HashSet<>();
+    if (skipNull()) {
+      return roots;
+    }
+    myReader.beginArray();
+    while (myReader.hasNext()) {
+      String sourceRoot = null;
+      String packagePrefix = "";
+      myReader.beginObject();
+      while (myReader.hasNext()) {
+        switch (myReader.nextName()) {
+          case "source_root":
+            sourceRoot = nextStringOrNull();
+            break;
+          case "package_prefix":
+            packagePrefix = nextStringOrNull();
+            break;
+          default:
+            myReader.skipValue();
+        }
+      }
+      myReader.endObject();
+      if (sourceRoot != null) {
+        roots.add(new ContentRoot(intern(sourceRoot), packagePrefix != null ? packagePrefix : ""));
+      }
+    }
+    myReader.endArray();
+    return roots;
+  }
+
+  @NotNull
+  private Map<String, LibraryInfo> readLibraries() throws IOException {
+    final Map<String, LibraryInfo> libraries = new HashMap<>();
+    if (skipNull()) {
+      return libraries;
+    }
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      final String libraryId = intern(myReader.nextName());
+      if (skipNull()) {
+        libraries.put(libraryId, null);
+        continue;
+      }
+      final LibraryInfo libraryInfo = new LibraryInfo();
+      myReader.beginObject();
+      while (myReader.hasNext()) {
+        libraryInfo.addJar(myReader.nextName(), nextStringOrNull());
+      }
+      myReader.endObject();
+      libraries.put(libraryId, libraryInfo);
+    }
+    myReader.endObject();
+    return libraries;
+  }
+
+  @Nullable
+  private PythonSetup readPythonSetup() throws IOException {
+    if (skipNull()) {
+      return null;
+    }
+    final PythonSetup pythonSetup = new PythonSetup();
+    pythonSetup.setInterpreters(new HashMap<>());
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      switch (myReader.nextName()) {
+        case "default_interpreter":
+          final String defaultInterpreter = nextStringOrNull();
+          if (defaultInterpreter != null) {
+            pythonSetup.setDefaultInterpreter(defaultInterpreter);
+          }
+          break;
+        case "interpreters":
+          pythonSetup.setInterpreters(readInterpreters());
+          break;
+        default:
+          myReader.skipValue();
+      }
+    }
+    myReader.endObject();
+    return pythonSetup;
+  }
+
+  @NotNull
+  private Map<String, PythonInterpreterInfo> readInterpreters() throws IOException {
+    final Map<String, PythonInterpreterInfo> interpreters = new HashMap<>();
+    if (skipNull()) {
+      return interpreters;
+    }
+    myReader.beginObject();
+    while (myReader.hasNext()) {
+      final String name = myReader.nextName();
+      final PythonInterpreterInfo info = new PythonInterpreterInfo();
+      myReader.beginObject();
+      while (myReader.hasNext()) {
+        switch (myReader.nextName()) {
+          case "binary":
+            final String binary = nextStringOrNull();
+            if (binary != null) {
+              info.setBinary(binary);
+            }
+            break;
+          case "chroot":
+            final String chroot = nextStringOrNull();
+            if (chroot != null) {
+              info.setChroot(chroot);
+            }
+            break;
+          default:
+            myReader.skipValue();
+        }
+      }
+      myReader.endObject();
+      interpreters.put(name, info);
+    }
+    myReader.endObject();
+    return interpreters;
+  }
+
+  @NotNull
+  private List<String> readStringList() throws IOException {
+    if (skipNull()) {
+      return Collections.emptyList();
+    }
+    final List<String> result = new ArrayList<>();
+    myReader.beginArray();
+    while (myReader.hasNext()) {
+      final String value = nextStringOrNull();
+      if (value != null) {
+        result.add(intern(value));
+      }
+    }
+    myReader.endArray();
+    return result;
+  }
+
+  @Nullable
+  private String nextStringOrNull() throws IOException {
+    return skipNull() ? null : myReader.nextString();
+  }
+
+  private boolean nextBooleanOrFalse() throws IOException {
+    return !skipNull() && myReader.nextBoolean();
+  }
+
+  private boolean skipNull() throws IOException {
+    if (myReader.peek() == JsonToken.NULL) {
+      myReader.nextNull();
+      return true;
+    }
+    return false;
+  }
+
+  @NotNull
+  private String intern(@NotNull String value) {
+    final String existing = myStrings.putIfAbsent(value, value);
+    return existing != null ? existing : value;
+  }
+}
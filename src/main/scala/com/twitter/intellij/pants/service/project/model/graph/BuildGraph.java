@@ -4,26 +4,46 @@
 package com.twitter.intellij.pants.service.project.model.graph;
 
 
-import com.google.common.collect.Queues;
-import com.google.common.collect.Sets;
 import com.intellij.openapi.diagnostic.Logger;
 import com.twitter.intellij.pants.PantsException;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 
-import java.util.ArrayDeque;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Optional;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+/**
+ * The target graph, with the targets numbered from 0 and the dependencies and dependees of each target
+ * stored as compressed sparse rows: the neighbours of target i are at [offsets[i], offsets[i + 1]) of one int array.
+ * The depth and the level of every target are computed once, in one pass over the graph each.
+ * {@link BuildGraphNode}s are views of the targets.
+ */
 public class BuildGraph {
   public static final String ERROR_ORPHANED_NODE = "Missing link in build graph. Orphan nodes: %s";
   public static final String ERROR_NO_TARGET_ROOT =
     "No target roots found in build graph. Please make sure Pants export version >= 1.0.9";
 
   private static Logger logger = Logger.getInstance("#" + BuildGraph.class.getName());
-  private Set<BuildGraphNode> allNodes = new HashSet<>();
+
+  private final BuildGraphNode[] myNodes;
+  private final Map<String, Integer> myNodeIndices;
+  private final int[] myDependencyOffsets;
+  private final int[] myDependencies;
+  private final int[] myDependeeOffsets;
+  private final int[] myDependees;
+  private final BitSet myTargetRoots = new BitSet();
+  private final BitSet myAliasTargets = new BitSet();
+  // Computed on first use, see getDepths and getLevels.
+  private int[] myDepths;
+  private int[] myLevels;
 
   public class OrphanedNodeException extends PantsException {
 
@@ -40,106 +60,275 @@ public class BuildGraph {
   }
 
   public BuildGraph(Map<String, TargetInfo> targets) {
-    allNodes.addAll(
-      targets
-        .entrySet()
-        .stream()
-        .map(BuildGraphNode::new)
-        .collect(Collectors.toList())
-    );
+    final int nodesCount = targets.size();
+    myNodes = new BuildGraphNode[nodesCount];
+    myNodeIndices = new HashMap<>(Math.max(16, (int)(nodesCount / 0.75f) + 1));
+    for (Map.Entry<String, TargetInfo> entry : targets.entrySet()) {
+      final int index = myNodeIndices.size();
+      myNodes[index] = new BuildGraphNode(this, index, entry);
+      myNodeIndices.put(entry.getKey(), index);
+      if (myNodes[index].isTargetRoot()) {
+        myTargetRoots.set(index);
+      }
+      if (myNodes[index].isAliasTarget()) {
+        myAliasTargets.set(index);
+      }
+    }
 
     // then process their relationships, dependencies and dependees
-    for (BuildGraphNode node : allNodes) {
-      Set<String> deps = node.getTargetInfo().getTargets();
-      for (String dep : deps) {
-        // FIXME: getNode is currently linear search.
-        Optional<BuildGraphNode> depNode = getNode(dep);
-        if (depNode.isPresent()) {
-          node.addDependency(depNode.get());
-          depNode.get().addDepeedee(node);
-        }
-        else {
+    myDependencyOffsets = new int[nodesCount + 1];
+    final int[] dependeesCounts = new int[nodesCount];
+    int edgesCount = 0;
+    int[] dependencies = new int[nodesCount];
+    for (int node = 0; node < nodesCount; node++) {
+      myDependencyOffsets[node] = edgesCount;
+      for (String dep : myNodes[node].getTargetInfo().getTargets()) {
+        final Integer depNode = myNodeIndices.get(dep);
+        if (depNode == null) {
           logger.error(String.format("No build graph node found for %s", dep));
+          continue;
+        }
+        if (edgesCount == dependencies.length) {
+          dependencies = grow(dependencies);
         }
+        dependencies[edgesCount++] = depNode;
+        dependeesCounts[depNode]++;
       }
     }
-  }
+    myDependencyOffsets[nodesCount] = edgesCount;
+    myDependencies = dependencies;
 
-  // FIXME: not the most efficient way to find max depth yet.
-  public int getMaxDepth() {
-    int depth = 0;
-    Set<BuildGraphNode> currentNodeSet = getTargetRoots();
-
-    while (true) {
-      Set<BuildGraphNode> dependencyNodes = currentNodeSet.stream()
-        .map(BuildGraphNode::getDependencies)
-        .flatMap(Set::stream)
-        .collect(Collectors.toSet());
-
-      int sizeBeforeAdd = currentNodeSet.size();
-      currentNodeSet.addAll(dependencyNodes);
-      if (currentNodeSet.size() == sizeBeforeAdd) {
-        if (currentNodeSet.size() == allNodes.size()) {
-          return depth;
-        }
-        else {
-          Set<BuildGraphNode> orphanNodes = Sets.difference(allNodes, currentNodeSet);
-          throw new OrphanedNodeException(String.format(ERROR_ORPHANED_NODE, orphanNodes));
-        }
+    myDependeeOffsets = new int[nodesCount + 1];
+    for (int node = 0; node < nodesCount; node++) {
+      myDependeeOffsets[node + 1] = myDependeeOffsets[node] + dependeesCounts[node];
+    }
+    myDependees = new int[edgesCount];
+    final int[] nextDependee = new int[nodesCount];
+    System.arraycopy(myDependeeOffsets, 0, nextDependee, 0, nodesCount);
+    for (int node = 0; node < nodesCount; node++) {
+      for (int edge = myDependencyOffsets[node]; edge < myDependencyOffsets[node + 1]; edge++) {
+        myDependees[nextDependee[myDependencies[edge]]++] = node;
       }
-      depth++;
     }
   }
 
-  private Set<BuildGraphNode> expandAliasTargets(Set<BuildGraphNode> initialTargets) {
-    Set<BuildGraphNode> results = Sets.newHashSet();
-    ArrayDeque<BuildGraphNode> q = Queues.newArrayDeque(initialTargets);
-    while (!q.isEmpty()) {
-      BuildGraphNode curr = q.pop();
-      if (curr.isAliasTarget()) {
-        q.addAll(curr.getDependencies());
-      }
-      else {
-        results.add(curr);
+  public int getMaxDepth() {
+    checkTargetRoots();
+    final int[] depths = getDepths();
+    final BitSet orphanNodes = new BitSet(myNodes.length);
+    int maxDepth = 0;
+    for (int node = 0; node < myNodes.length; node++) {
+      if (depths[node] < 0) {
+        orphanNodes.set(node);
       }
+      maxDepth = Math.max(maxDepth, depths[node]);
+    }
+    if (!orphanNodes.isEmpty()) {
+      throw new OrphanedNodeException(String.format(ERROR_ORPHANED_NODE, toNodes(orphanNodes)));
     }
-    return results;
+    return maxDepth;
   }
 
   // level 0 - target roots
   // level 1 - target roots + direct deps
   // ...
+  // The targets aliased by a target of a level are in the level too.
   public Set<BuildGraphNode> getNodesUpToLevel(int level) {
-    // Holds the current scope of build graph.
-    Set<BuildGraphNode> results = getTargetRoots();
-    results.addAll(expandAliasTargets(results));
-
-    for (int i = 0; i < level; i++) {
-      Set<BuildGraphNode> dependencies = new HashSet<>();
-      for (BuildGraphNode node : results) {
-        dependencies.addAll(node.getDependencies());
+    checkTargetRoots();
+    final int[] levels = getLevels();
+    final BitSet results = new BitSet(myNodes.length);
+    for (int node = 0; node < myNodes.length; node++) {
+      if (levels[node] >= 0 && levels[node] <= Math.max(level, 0)) {
+        results.set(node);
+      }
+    }
+    return toNodes(results);
+  }
+
+  /**
+   * @return the number of nodes first included at each level by {@link #getNodesUpToLevel}.
+   */
+  public SortedMap<Integer, Integer> getNodesCountByLevel() {
+    final SortedMap<Integer, Integer> result = new TreeMap<>();
+    for (int level : getLevels()) {
+      if (level >= 0) {
+        result.merge(level, 1, Integer::sum);
+      }
+    }
+    return result;
+  }
+
+  int getLevel(int node) {
+    return getLevels()[node];
+  }
+
+  /**
+   * @return the distance of every node from the nearest target root, -1 if none reaches it.
+   */
+  private int[] getDepths() {
+    if (myDepths == null) {
+      final int[] depths = new int[myNodes.length];
+      Arrays.fill(depths, -1);
+      // Every node is queued once at most.
+      final int[] queue = new int[myNodes.length];
+      int tail = 0;
+      for (int root = myTargetRoots.nextSetBit(0); root >= 0; root = myTargetRoots.nextSetBit(root + 1)) {
+        depths[root] = 0;
+        queue[tail++] = root;
       }
-      results.addAll(dependencies);
-      results.addAll(expandAliasTargets(dependencies));
-      // All nodes are in, no need to iterate more.
-      if (results.size() == allNodes.size()) {
-        break;
+      for (int head = 0; head < tail; head++) {
+        final int node = queue[head];
+        for (int edge = myDependencyOffsets[node]; edge < myDependencyOffsets[node + 1]; edge++) {
+          final int dep = myDependencies[edge];
+          if (depths[dep] < 0) {
+            depths[dep] = depths[node] + 1;
+            queue[tail++] = dep;
+          }
+        }
       }
+      myDepths = depths;
+    }
+    return myDepths;
+  }
+
+  private int[] getLevels() {
+    if (myLevels == null) {
+      myLevels = new LevelComputation().myLevels;
     }
-    return results;
+    return myLevels;
   }
 
-  private Set<BuildGraphNode> getTargetRoots() {
-    Set<BuildGraphNode> targetRoots = allNodes.stream().filter(BuildGraphNode::isTargetRoot).collect(Collectors.toSet());
-    if (targetRoots.isEmpty()) {
+  private void checkTargetRoots() {
+    if (myTargetRoots.isEmpty()) {
       throw new NoTargetRootException(ERROR_NO_TARGET_ROOT);
     }
-    return targetRoots;
   }
 
-  private Optional<BuildGraphNode> getNode(String targetAddress) {
-    return allNodes.stream()
-      .filter(n -> n.getAddress().equals(targetAddress))
-      .findFirst();
+  Set<BuildGraphNode> getDependencies(int node) {
+    return new NodeSet(myDependencies, myDependencyOffsets[node], myDependencyOffsets[node + 1]);
+  }
+
+  Set<BuildGraphNode> getDependees(int node) {
+    return new NodeSet(myDependees, myDependeeOffsets[node], myDependeeOffsets[node + 1]);
+  }
+
+  private Set<BuildGraphNode> toNodes(BitSet nodes) {
+    final Set<BuildGraphNode> result = new HashSet<>(Math.max(16, (int)(nodes.cardinality() / 0.75f) + 1));
+    for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+      result.add(myNodes[node]);
+    }
+    return result;
+  }
+
+  private static int[] grow(int[] array) {
+    final int[] result = new int[Math.max(16, array.length * 2)];
+    System.arraycopy(array, 0, result, 0, array.length);
+    return result;
+  }
+
+  /**
+   * Assigns every node the first level it is included at in one breadth first pass from the target roots,
+   * expanding every alias once.
+   */
+  private class LevelComputation {
+    private final int[] myLevels = new int[myNodes.length];
+    // The nodes in the order of their levels. Every node is added once at most.
+    private final int[] myAdded = new int[myNodes.length];
+    private int myAddedCount = 0;
+    private final BitSet myExpanded = new BitSet(myNodes.length);
+    private final int[] myStack = new int[myNodes.length];
+
+    private LevelComputation() {
+      Arrays.fill(myLevels, -1);
+      for (int root = myTargetRoots.nextSetBit(0); root >= 0; root = myTargetRoots.nextSetBit(root + 1)) {
+        add(root, 0);
+      }
+      int levelStart = 0;
+      for (int level = 1; levelStart < myAddedCount; level++) {
+        final int levelEnd = myAddedCount;
+        for (int i = levelStart; i < levelEnd; i++) {
+          final int node = myAdded[i];
+          for (int edge = myDependencyOffsets[node]; edge < myDependencyOffsets[node + 1]; edge++) {
+            add(myDependencies[edge], level);
+          }
+        }
+        levelStart = levelEnd;
+      }
+    }
+
+    /**
+     * Adds the node to the level, with the non alias targets reachable from it through aliases only.
+     * A target aliased by an alias expanded before is at a lower level already.
+     */
+    private void add(int node, int level) {
+      setLevel(node, level);
+      if (!myAliasTargets.get(node) || myExpanded.get(node)) {
+        return;
+      }
+      myExpanded.set(node);
+      int size = 0;
+      myStack[size++] = node;
+      while (size > 0) {
+        final int curr = myStack[--size];
+        if (!myAliasTargets.get(curr)) {
+          setLevel(curr, level);
+          continue;
+        }
+        for (int edge = myDependencyOffsets[curr]; edge < myDependencyOffsets[curr + 1]; edge++) {
+          final int dep = myDependencies[edge];
+          if (!myExpanded.get(dep)) {
+            myExpanded.set(dep);
+            myStack[size++] = dep;
+          }
+        }
+      }
+    }
+
+    private void setLevel(int node, int level) {
+      if (myLevels[node] < 0) {
+        myLevels[node] = level;
+        myAdded[myAddedCount++] = node;
+      }
+    }
+  }
+
+  /**
+   * Read only view of a row of the adjacency arrays.
+   */
+  private class NodeSet extends AbstractSet<BuildGraphNode> {
+    private final int[] myEdges;
+    private final int myFrom;
+    private final int myTo;
+
+    private NodeSet(int[] edges, int from, int to) {
+      myEdges = edges;
+      myFrom = from;
+      myTo = to;
+    }
+
+    @Override
+    public Iterator<BuildGraphNode> iterator() {
+      return new Iterator<BuildGraphNode>() {
+        private int myEdge = myFrom;
+
+        @Override
+        public boolean hasNext() {
+          return myEdge < myTo;
+        }
+
+        @Override
+        public BuildGraphNode next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return myNodes[myEdges[myEdge++]];
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return myTo - myFrom;
+    }
   }
 }
@@ -6,7 +6,6 @@ package com.twitter.intellij.pants.service.project.model.graph;
 import com.twitter.intellij.pants.model.TargetAddressInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -14,28 +13,41 @@ import java.util.stream.Collectors;
 
 /**
  * BuildGraphNode and Module are one to one relationship.
+ * A node is a view of a target of its {@link BuildGraph}, which keeps the edges.
  */
 public class BuildGraphNode {
-  private TargetInfo myTargetInfo;
+  private final BuildGraph myGraph;
+  private final int myIndex;
+  private final TargetInfo myTargetInfo;
 
   public String getAddress() {
     return address;
   }
 
-  private String address; // could be synthetic and tweaked by modifiers.
+  private final String address; // could be synthetic and tweaked by modifiers.
 
   public Set<BuildGraphNode> getDependencies() {
-    return myDependencies;
+    return myGraph.getDependencies(myIndex);
   }
 
-  private Set<BuildGraphNode> myDependencies = new HashSet<>();
-  private Set<BuildGraphNode> myDependees = new HashSet<>();
+  public Set<BuildGraphNode> getDependees() {
+    return myGraph.getDependees(myIndex);
+  }
+
+  /**
+   * @return the first level of {@link BuildGraph#getNodesUpToLevel} including this node, -1 if none does.
+   */
+  public int getLevel() {
+    return myGraph.getLevel(myIndex);
+  }
 
   public TargetInfo getTargetInfo() {
     return myTargetInfo;
   }
 
-  public BuildGraphNode(Map.Entry<String, TargetInfo> entry) {
+  BuildGraphNode(BuildGraph graph, int index, Map.Entry<String, TargetInfo> entry) {
+    myGraph = graph;
+    myIndex = index;
     address = entry.getKey();
     myTargetInfo = entry.getValue();
   }
@@ -52,14 +64,6 @@ public class BuildGraphNode {
     return myTargetInfo.getAddressInfos().stream().anyMatch(TargetAddressInfo::isTargetAlias);
   }
 
-  public void addDependency(BuildGraphNode node) {
-    myDependencies.add(node);
-  }
-
-  public void addDepeedee(BuildGraphNode node) {
-    myDependees.add(node);
-  }
-
   @Override
   public int hashCode() {
     return Objects.hash(myTargetInfo);
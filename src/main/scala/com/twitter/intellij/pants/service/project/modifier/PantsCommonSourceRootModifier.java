@@ -54,7 +54,7 @@ public class PantsCommonSourceRootModifier implements PantsProjectInfoModifierEx
       projectInfo.addTarget(commonTargetNameAndInfo.getFirst(), commonTargetNameAndInfo.getSecond());
       for (Pair<String, TargetInfo> nameAndInfo : targetNameAndInfos) {
         nameAndInfo.getSecond().getRoots().remove(commonContentRoot);
-        nameAndInfo.getSecond().addDependency(commonTargetNameAndInfo.getFirst());
+        projectInfo.addDependency(nameAndInfo.getFirst(), commonTargetNameAndInfo.getFirst());
       }
     }
   }
@@ -5,6 +5,7 @@ package com.twitter.intellij.pants.service.project.modifier;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.Function;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.PantsException;
@@ -14,50 +15,142 @@ import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+/**
+ * IntelliJ modules can't depend on each other cyclically, so every set of targets depending on each other,
+ * directly or not, i.e. every strongly connected component of the target graph, is combined into a single target.
+ */
 public class PantsCyclicDependenciesModifier implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
-    final Set<Map.Entry<String, TargetInfo>> originalEntries =
-      new HashSet<>(projectInfo.getTargets().entrySet());
-    for (Map.Entry<String, TargetInfo> nameAndInfo : originalEntries) {
-      final String targetName = nameAndInfo.getKey();
-      final TargetInfo targetInfo = nameAndInfo.getValue();
-      if (!projectInfo.getTargets().containsKey(targetName)) {
-        // already removed
-        continue;
+    combineCycles(projectInfo, log);
+  }
+
+  static void combineCycles(@NotNull ProjectInfo projectInfo, @NotNull Logger log) {
+    for (Map.Entry<String, TargetInfo> nameAndInfo : projectInfo.getTargets().entrySet()) {
+      if (nameAndInfo.getValue().dependOn(nameAndInfo.getKey())) {
+        throw new PantsException(String.format("Self cyclic dependency found %s", nameAndInfo.getKey()));
       }
-      for (String dependencyTargetName : targetInfo.getTargets()) {
-        TargetInfo dependencyTargetInfo = projectInfo.getTarget(dependencyTargetName);
-        if (dependencyTargetInfo != null && dependencyTargetInfo.dependOn(targetName)) {
+    }
 
-          if (targetName.equals(dependencyTargetName)) {
-            throw new PantsException(String.format("Self cyclic dependency found %s", targetName));
-          }
+    final List<List<String>> cycles = findCycles(projectInfo.getTargets());
+    final Map<Integer, Integer> cycleSizes = new TreeMap<>();
+    for (List<String> cycle : cycles) {
+      log.info(String.format("Found cyclic dependency between %s", StringUtil.join(cycle, ", ")));
+      cycleSizes.merge(cycle.size(), 1, Integer::sum);
 
-          log.info(String.format("Found cyclic dependency between %s and %s", targetName, dependencyTargetName));
+      final String combinedTargetName = combinedTargetsName(ArrayUtil.toStringArray(cycle));
+      TargetInfo combinedInfo = projectInfo.getTarget(cycle.get(0));
+      for (String targetName : cycle.subList(1, cycle.size())) {
+        combinedInfo = combinedInfo.union(projectInfo.getTarget(targetName));
+      }
+      for (String targetName : cycle) {
+        combinedInfo.removeDependency(targetName);
+      }
+      projectInfo.addTarget(combinedTargetName, combinedInfo);
+      for (String targetName : cycle) {
+        projectInfo.replaceDependency(targetName, combinedTargetName);
+        projectInfo.removeTarget(targetName);
+      }
+    }
+    if (!cycles.isEmpty()) {
+      log.info(String.format("Combined %d dependency cycles, amount of cycles by size: %s", cycles.size(), cycleSizes));
+    }
+  }
 
-          final String combinedTargetName = combinedTargetsName(targetName, dependencyTargetName);
-          final TargetInfo combinedInfo = targetInfo.union(dependencyTargetInfo);
-          combinedInfo.removeDependency(targetName);
-          combinedInfo.removeDependency(dependencyTargetName);
-          projectInfo.addTarget(combinedTargetName, combinedInfo);
+  /**
+   * Finds the strongly connected components of more than one target with Tarjan's algorithm,
+   * iteratively to not overflow the stack on deep target graphs.
+   *
+   * @return the targets of each cycle, sorted.
+   */
+  @NotNull
+  static List<List<String>> findCycles(@NotNull Map<String, TargetInfo> targets) {
+    final Map<String, Integer> indices = new HashMap<>();
+    final Map<String, Integer> lowLinks = new HashMap<>();
+    final Deque<String> componentStack = new ArrayDeque<>();
+    final Set<String> onComponentStack = new HashSet<>();
+    final Deque<Visit> visits = new ArrayDeque<>();
+    final List<List<String>> cycles = new ArrayList<>();
 
-          projectInfo.replaceDependency(targetName, combinedTargetName);
-          projectInfo.removeTarget(targetName);
+    for (String root : targets.keySet()) {
+      if (indices.containsKey(root)) {
+        continue;
+      }
+      visits.push(new Visit(root, targets.get(root)));
+      while (!visits.isEmpty()) {
+        final Visit visit = visits.peek();
+        if (!visit.started) {
+          visit.started = true;
+          indices.put(visit.targetName, indices.size());
+          lowLinks.put(visit.targetName, indices.get(visit.targetName));
+          componentStack.push(visit.targetName);
+          onComponentStack.add(visit.targetName);
+        }
+        if (visit.dependencies.hasNext()) {
+          final String dependency = visit.dependencies.next();
+          final TargetInfo dependencyInfo = targets.get(dependency);
+          if (dependencyInfo == null) {
+            continue;
+          }
+          if (!indices.containsKey(dependency)) {
+            visits.push(new Visit(dependency, dependencyInfo));
+          }
+          else if (onComponentStack.contains(dependency)) {
+            lowLinks.put(visit.targetName, Math.min(lowLinks.get(visit.targetName), indices.get(dependency)));
+          }
+          continue;
+        }
 
-          projectInfo.replaceDependency(dependencyTargetName, combinedTargetName);
-          projectInfo.removeTarget(dependencyTargetName);
+        visits.pop();
+        final int lowLink = lowLinks.get(visit.targetName);
+        if (lowLink == indices.get(visit.targetName)) {
+          final List<String> component = new ArrayList<>();
+          String member;
+          do {
+            member = componentStack.pop();
+            onComponentStack.remove(member);
+            component.add(member);
+          }
+          while (!member.equals(visit.targetName));
+          if (component.size() > 1) {
+            Collections.sort(component);
+            cycles.add(component);
+          }
+        }
+        final Visit caller = visits.peek();
+        if (caller != null) {
+          lowLinks.put(caller.targetName, Math.min(lowLinks.get(caller.targetName), lowLink));
         }
       }
     }
+    return cycles;
+  }
+
+  private static class Visit {
+    private final String targetName;
+    private final Iterator<String> dependencies;
+    private boolean started = false;
+
+    private Visit(@NotNull String targetName, @NotNull TargetInfo targetInfo) {
+      this.targetName = targetName;
+      this.dependencies = targetInfo.getTargets().iterator();
+    }
   }
 
   @NotNull
-  private String combinedTargetsName(String... targetNames) {
+  private static String combinedTargetsName(String... targetNames) {
     assert targetNames.length > 0;
     String commonPrefix = targetNames[0];
     for (String name : targetNames) {
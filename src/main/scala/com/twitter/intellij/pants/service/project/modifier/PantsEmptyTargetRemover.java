@@ -10,24 +10,35 @@ import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Map;
 
+/**
+ * Removes the targets without sources, libraries or dependencies, e.g. aliases of removed targets.
+ * Removing a target may make its dependees empty, so only they are checked again.
+ */
 public class PantsEmptyTargetRemover implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
-    final List<String> emptyTargets = new ArrayList<>();
-    do {
-      emptyTargets.clear();
-      for (Map.Entry<String, TargetInfo> targetInfoEntry : projectInfo.getTargets().entrySet()) {
-        final String targetName = targetInfoEntry.getKey();
-        final TargetInfo targetInfo = targetInfoEntry.getValue();
-        if (targetInfo.isEmpty()) {
-          emptyTargets.add(targetName);
-        }
+    removeEmptyTargets(projectInfo);
+  }
+
+  static void removeEmptyTargets(@NotNull ProjectInfo projectInfo) {
+    final Deque<String> worklist = new ArrayDeque<>();
+    for (Map.Entry<String, TargetInfo> targetInfoEntry : projectInfo.getTargets().entrySet()) {
+      if (targetInfoEntry.getValue().isEmpty()) {
+        worklist.add(targetInfoEntry.getKey());
+      }
+    }
+    while (!worklist.isEmpty()) {
+      final String targetName = worklist.poll();
+      final TargetInfo targetInfo = projectInfo.getTarget(targetName);
+      if (targetInfo == null || !targetInfo.isEmpty()) {
+        continue;
       }
-      projectInfo.removeTargets(emptyTargets);
-    } while (!emptyTargets.isEmpty());
+      worklist.addAll(projectInfo.getDependees(targetName));
+      projectInfo.removeTarget(targetName);
+    }
   }
 }
@@ -3,34 +3,46 @@
 
 package com.twitter.intellij.pants.service.project.modifier;
 
-import com.google.common.collect.Sets;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
 import com.twitter.intellij.pants.service.project.PantsProjectInfoModifierExtension;
 import com.twitter.intellij.pants.service.project.model.ContentRoot;
 import com.twitter.intellij.pants.service.project.model.ProjectInfo;
-import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import com.twitter.intellij.pants.util.PantsUtil;
+import com.twitter.intellij.pants.util.PathTrie;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.util.Collection;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtension {
   @Override
   public void modify(@NotNull ProjectInfo projectInfo, @NotNull PantsCompileOptionsExecutor executor, @NotNull Logger log) {
-    for (TargetInfo info : projectInfo.getTargets().values()) {
-      info.setRoots(compressRootsIfPossible(info.getRoots()));
-    }
+    // Many targets share a package root, so every package root is scanned once for the whole import.
+    final DirectoryScanCache scanCache = new DirectoryScanCache();
+    projectInfo.getTargets().values().parallelStream()
+      .forEach(info -> info.setRoots(compressRootsIfPossible(info.getRoots(), scanCache)));
   }
 
   @NotNull
-  private Set<ContentRoot> compressRootsIfPossible(@NotNull Set<ContentRoot> roots) {
+  static Set<ContentRoot> compressRootsIfPossible(@NotNull Set<ContentRoot> roots, @NotNull DirectoryScanCache scanCache) {
     final Set<String> packageRoots = roots.stream().map(ContentRoot::getPackageRoot).collect(Collectors.toSet());
     if (packageRoots.size() != 1) {
       return roots;
@@ -38,7 +50,7 @@ public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtens
     final String packageRoot = packageRoots.iterator().next();
     final Set<File> sourceRoots = roots.stream().map(ContentRoot::getRawSourceRoot).map(File::new).collect(Collectors.toSet());
 
-    if (folderContainsOnlyRoots(new File(packageRoot), sourceRoots)) {
+    if (scanCache.folderContainsOnlyRoots(packageRoot, sourceRoots)) {
       return Collections.singleton(new ContentRoot(packageRoot, ""));
     }
     Set<File> ancestorContentRootPaths = findAncestors(sourceRoots);
@@ -75,22 +87,11 @@ public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtens
    * @return the top ancestors among the candidates
    */
   protected static Set<File> findAncestors(Set<File> candidates) {
-    Set<File> results = Sets.newHashSet();
-    results.addAll(candidates);
-
-    // TODO(yic): the algorithm is n^2, but typically a target would not have more than 5 content roots, and most of the time it only has 1.
-    // Like bubble sort, n^2 is not always bad.
-    for (File x : candidates) {
-      for (File y : candidates) {
-        if (FileUtil.filesEqual(x, y)) {
-          continue;
-        }
-        if (isYSubDirectoryOfX(x, y)) {
-          results.remove(y);
-        }
-      }
-    }
-    return results;
+    final PathTrie trie = new PathTrie();
+    candidates.forEach(candidate -> trie.add(candidate.getPath()));
+    return candidates.stream()
+      .filter(candidate -> !trie.containsAncestor(candidate.getPath(), true))
+      .collect(Collectors.toSet());
   }
 
   /**
@@ -102,30 +103,58 @@ public class PantsSourceRootCompressor implements PantsProjectInfoModifierExtens
    * @return true, if the child is a subdirectory of the base directory.
    */
   public static boolean isYSubDirectoryOfX(File base, File child) {
-    File parentFile = child;
-    while (parentFile != null) {
-      if (FileUtil.filesEqual(base, parentFile)) {
-        return true;
-      }
-      parentFile = parentFile.getParentFile();
-    }
-    return false;
+    return FileUtil.isAncestor(base, child, false);
   }
 
-  private boolean folderContainsOnlyRoots(@NotNull File root, Set<File> foldersWithSources) {
-    final File[] files = root.listFiles();
-    if (files == null) {
-      return false;
+  /**
+   * Keeps the directories with files of each scanned package root, so that a package root shared by several targets
+   * is only walked once. Safe to use from several threads.
+   */
+  static class DirectoryScanCache {
+    // A package root that couldn't be walked completely, in which case it never contains only roots.
+    private static final Set<File> UNSCANNABLE = Collections.unmodifiableSet(new HashSet<>());
+
+    private final Map<String, Set<File>> myFoldersWithFiles = new ConcurrentHashMap<>();
+
+    /**
+     * @return whether every folder under the root holding files other than BUILD files is one of the given folders.
+     */
+    boolean folderContainsOnlyRoots(@NotNull String root, @NotNull Set<File> foldersWithSources) {
+      final Set<File> foldersWithFiles = myFoldersWithFiles.computeIfAbsent(root, DirectoryScanCache::scan);
+      return foldersWithFiles != UNSCANNABLE && foldersWithSources.containsAll(foldersWithFiles);
     }
-    for (File file : files) {
-      if (file.isFile() && !PantsUtil.isBUILDFileName(file.getName()) && !foldersWithSources.contains(root)) {
-        return false;
+
+    @NotNull
+    private static Set<File> scan(@NotNull String root) {
+      final Path rootPath = Paths.get(root);
+      if (!Files.isDirectory(rootPath)) {
+        return UNSCANNABLE;
       }
-      if (file.isDirectory() && !folderContainsOnlyRoots(file, foldersWithSources)) {
-        return false;
+      final Set<File> foldersWithFiles = new HashSet<>();
+      try {
+        Files.walkFileTree(rootPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            if (attrs.isRegularFile() && !PantsUtil.isBUILDFileName(file.getFileName().toString())) {
+              foldersWithFiles.add(file.getParent().toFile());
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+            // Files that can't be read are skipped, but every folder has to be listed.
+            if (Files.isDirectory(file) || e instanceof FileSystemLoopException) {
+              throw e;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+      }
+      catch (IOException e) {
+        return UNSCANNABLE;
       }
+      return foldersWithFiles;
     }
-
-    return true;
   }
 }
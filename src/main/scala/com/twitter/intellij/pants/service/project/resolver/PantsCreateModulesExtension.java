@@ -55,6 +55,7 @@ public class PantsCreateModulesExtension implements PantsResolverExtension {
         throw new PantsException("Task cancelled");
       }
       logger.info(String.format("TargetInfo level %s", depthToInclude));
+      logger.info(String.format("Targets by level: %s", buildGraph.get().getNodesCountByLevel()));
       targetInfoWithinLevel = buildGraph
         .get()
         .getNodesUpToLevel(depthToInclude)
@@ -13,63 +13,61 @@ import com.intellij.openapi.externalSystem.model.project.ModuleData;
 import com.intellij.openapi.externalSystem.model.project.ProjectData;
 import com.intellij.openapi.util.io.FileUtil;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
-import com.twitter.intellij.pants.service.project.PantsResolverExtension;
+import com.twitter.intellij.pants.service.project.PantsTargetResolverExtension;
+import com.twitter.intellij.pants.service.project.model.FileExistenceCache;
 import com.twitter.intellij.pants.service.project.model.LibraryInfo;
 import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
-import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
 import com.twitter.intellij.pants.util.PantsConstants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
 import java.util.Map;
-import java.util.Optional;
 
-public class PantsLibrariesExtension implements PantsResolverExtension {
+public class PantsLibrariesExtension implements PantsTargetResolverExtension {
+  @Nullable
   @Override
-  public void resolve(
+  public Runnable prepare(
     @NotNull ProjectInfo projectInfo,
     @NotNull PantsCompileOptionsExecutor executor,
     @NotNull DataNode<ProjectData> projectDataNode,
     @NotNull Map<String, DataNode<ModuleData>> modules,
-    @NotNull Optional<BuildGraph> buildGraph
+    @NotNull String jarTarget,
+    @NotNull TargetInfo targetInfo
   ) {
-    for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
-      final TargetInfo targetInfo = entry.getValue();
-
-      if (executor.getOptions().isImportSourceDepsAsJars()) {
-        if (targetInfo.isPythonTarget()) {
-          continue;
-        }
-      }
-      else if (!targetInfo.isJarLibrary()) {
-        continue;
+    if (executor.getOptions().isImportSourceDepsAsJars()) {
+      if (targetInfo.isPythonTarget()) {
+        return null;
       }
+    }
+    else if (!targetInfo.isJarLibrary()) {
+      return null;
+    }
 
-      final String jarTarget = entry.getKey();
-      final LibraryData libraryData = new LibraryData(PantsConstants.SYSTEM_ID, jarTarget);
+    final LibraryData libraryData = new LibraryData(PantsConstants.SYSTEM_ID, jarTarget);
 
-      for (String libraryId : targetInfo.getLibraries()) {
-        final LibraryInfo libraryInfo = projectInfo.getLibraries(libraryId);
-        if (libraryInfo == null) {
-          LOG.debug("Couldn't find library " + libraryId);
-          continue;
-        }
+    for (String libraryId : targetInfo.getLibraries()) {
+      final LibraryInfo libraryInfo = projectInfo.getLibraries(libraryId);
+      if (libraryInfo == null) {
+        LOG.debug("Couldn't find library " + libraryId);
+        continue;
+      }
 
-        addPathLoLibrary(libraryData, executor, LibraryPathType.BINARY, libraryInfo.getDefault());
-        addPathLoLibrary(libraryData, executor, LibraryPathType.SOURCE, libraryInfo.getSources());
-        addPathLoLibrary(libraryData, executor, LibraryPathType.DOC, libraryInfo.getJavadoc());
+      final FileExistenceCache fileExistence = projectInfo.getFileExistenceCache();
+      addPathLoLibrary(libraryData, executor, fileExistence, LibraryPathType.BINARY, libraryInfo.getDefault());
+      addPathLoLibrary(libraryData, executor, fileExistence, LibraryPathType.SOURCE, libraryInfo.getSources());
+      addPathLoLibrary(libraryData, executor, fileExistence, LibraryPathType.DOC, libraryInfo.getJavadoc());
 
-        for (String otherLibraryInfo : libraryInfo.getJarsWithCustomClassifiers()) {
-          addPathLoLibrary(libraryData, executor, LibraryPathType.BINARY, otherLibraryInfo);
-        }
+      for (String otherLibraryInfo : libraryInfo.getJarsWithCustomClassifiers()) {
+        addPathLoLibrary(libraryData, executor, fileExistence, LibraryPathType.BINARY, otherLibraryInfo);
       }
+    }
 
+    return () -> {
       projectDataNode.createChild(ProjectKeys.LIBRARY, libraryData);
       final DataNode<ModuleData> moduleDataNode = modules.get(jarTarget);
       if (moduleDataNode == null) {
-        continue;
+        return;
       }
 
       final LibraryDependencyData library = new LibraryDependencyData(
@@ -79,12 +77,13 @@ public class PantsLibrariesExtension implements PantsResolverExtension {
       );
       library.setExported(true);
       moduleDataNode.createChild(ProjectKeys.LIBRARY_DEPENDENCY, library);
-    }
+    };
   }
 
   private void addPathLoLibrary(
     @NotNull LibraryData libraryData,
     @NotNull PantsCompileOptionsExecutor executor,
+    @NotNull FileExistenceCache fileExistence,
     @NotNull LibraryPathType binary,
     @Nullable String path
   ) {
@@ -93,7 +92,7 @@ public class PantsLibrariesExtension implements PantsResolverExtension {
     }
     path = FileUtil.isAbsolute(path) ? path : executor.getAbsolutePathFromWorkingDir(path);
 
-    if (new File(path).exists()) {
+    if (fileExistence.exists(path)) {
       libraryData.addPath(binary, path);
     }
   }
@@ -16,9 +16,12 @@ import com.twitter.intellij.pants.service.project.model.TargetInfo;
 import com.twitter.intellij.pants.util.PantsUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class PantsModuleDependenciesExtension implements PantsResolverExtension {
   @Override
@@ -29,6 +32,8 @@ public class PantsModuleDependenciesExtension implements PantsResolverExtension
     @NotNull Map<String, DataNode<ModuleData>> modules,
     @NotNull Optional<BuildGraph> buildGraph
   ) {
+    // The modules each module depends on, so that checking for an edge doesn't scan the data nodes.
+    final Map<DataNode<ModuleData>, Set<ModuleData>> moduleDependencies = new IdentityHashMap<>();
     for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
       final String mainTarget = entry.getKey();
       final TargetInfo targetInfo = entry.getValue();
@@ -40,17 +45,23 @@ public class PantsModuleDependenciesExtension implements PantsResolverExtension
         if (!modules.containsKey(target)) {
           continue;
         }
-        addModuleDependency(moduleDataNode, modules.get(target), true);
+        addModuleDependency(moduleDependencies, moduleDataNode, modules.get(target), true);
       }
     }
   }
 
-  private void addModuleDependency(DataNode<ModuleData> moduleDataNode, DataNode<ModuleData> submoduleDataNode, boolean exported) {
-    final List<ModuleDependencyData> subModuleDeps = PantsUtil.findChildren(submoduleDataNode, ProjectKeys.MODULE_DEPENDENCY);
-    for (ModuleDependencyData dep : subModuleDeps) {
-      if (dep.getTarget().equals(moduleDataNode.getData())) {
-        return;
-      }
+  private void addModuleDependency(
+    @NotNull Map<DataNode<ModuleData>, Set<ModuleData>> moduleDependencies,
+    @NotNull DataNode<ModuleData> moduleDataNode,
+    @NotNull DataNode<ModuleData> submoduleDataNode,
+    boolean exported
+  ) {
+    if (getDependencies(moduleDependencies, submoduleDataNode).contains(moduleDataNode.getData())) {
+      return;
+    }
+    // Several targets can share a module, e.g. the ones merged by the modifiers, and depend on the same targets.
+    if (!getDependencies(moduleDependencies, moduleDataNode).add(submoduleDataNode.getData())) {
+      return;
     }
     final ModuleDependencyData moduleDependencyData = new ModuleDependencyData(
       moduleDataNode.getData(),
@@ -59,4 +70,20 @@ public class PantsModuleDependenciesExtension implements PantsResolverExtension
     moduleDependencyData.setExported(exported);
     moduleDataNode.createChild(ProjectKeys.MODULE_DEPENDENCY, moduleDependencyData);
   }
+
+  /**
+   * @return the modules the module depends on, starting with the dependencies other resolvers added.
+   */
+  @NotNull
+  private static Set<ModuleData> getDependencies(
+    @NotNull Map<DataNode<ModuleData>, Set<ModuleData>> moduleDependencies,
+    @NotNull DataNode<ModuleData> moduleDataNode
+  ) {
+    return moduleDependencies.computeIfAbsent(
+      moduleDataNode,
+      node -> PantsUtil.findChildren(node, ProjectKeys.MODULE_DEPENDENCY).stream()
+        .map(ModuleDependencyData::getTarget)
+        .collect(Collectors.toCollection(HashSet::new))
+    );
+  }
 }
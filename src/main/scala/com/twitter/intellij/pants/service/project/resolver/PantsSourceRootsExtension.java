@@ -8,28 +8,27 @@ import com.intellij.openapi.externalSystem.model.ProjectKeys;
 import com.intellij.openapi.externalSystem.model.project.ContentRootData;
 import com.intellij.openapi.externalSystem.model.project.ModuleData;
 import com.intellij.openapi.externalSystem.model.project.ProjectData;
-import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.model.PantsSourceType;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
-import com.twitter.intellij.pants.service.project.PantsResolverExtension;
+import com.twitter.intellij.pants.service.project.PantsTargetResolverExtension;
 import com.twitter.intellij.pants.service.project.model.ContentRoot;
 import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
-import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
 import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PathTrie;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-public class PantsSourceRootsExtension implements PantsResolverExtension {
+public class PantsSourceRootsExtension implements PantsTargetResolverExtension {
 
   private static String getSourceRootRegardingTargetType(@NotNull TargetInfo targetInfo, @NotNull ContentRoot root) {
     return doNotSupportPackagePrefixes(targetInfo) ? root.getPackageRoot() : root.getRawSourceRoot();
@@ -39,82 +38,66 @@ public class PantsSourceRootsExtension implements PantsResolverExtension {
     return targetInfo.isPythonTarget() || PantsSourceType.isResource(targetInfo.getSourcesType());
   }
 
-  private static boolean hasAnAncestorRoot(@NotNull Collection<String> baseSourceRoots, @NotNull String root) {
-    for (String sourceRoot : baseSourceRoots) {
-      if (FileUtil.isAncestor(sourceRoot, root, false)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-
+  @Nullable
   @Override
-  public void resolve(
+  public Runnable prepare(
     @NotNull ProjectInfo projectInfo,
     @NotNull PantsCompileOptionsExecutor executor,
     @NotNull DataNode<ProjectData> projectDataNode,
     @NotNull Map<String, DataNode<ModuleData>> modules,
-    @NotNull Optional<BuildGraph> buildGraph
+    @NotNull String targetAddress,
+    @NotNull TargetInfo targetInfo
   ) {
-    for (Map.Entry<String, TargetInfo> entry : projectInfo.getSortedTargets()) {
-      final String targetAddress = entry.getKey();
-      final TargetInfo targetInfo = entry.getValue();
-      if (!modules.containsKey(targetAddress)) {
-        continue;
-      }
-      final DataNode<ModuleData> moduleDataNode = modules.get(targetAddress);
-
-      createContentRoots(moduleDataNode, targetInfo);
+    final DataNode<ModuleData> moduleDataNode = modules.get(targetAddress);
+    if (moduleDataNode == null) {
+      return null;
     }
+    final List<ContentRootData> contentRoots = createContentRoots(targetInfo);
+    return () -> {
+      for (ContentRootData contentRoot : contentRoots) {
+        moduleDataNode.createChild(ProjectKeys.CONTENT_ROOT, contentRoot);
+      }
+    };
   }
 
-  private void createContentRoots(@NotNull DataNode<ModuleData> moduleDataNode, @NotNull final TargetInfo targetInfo) {
+  @NotNull
+  private List<ContentRootData> createContentRoots(@NotNull final TargetInfo targetInfo) {
     final Set<ContentRoot> roots = targetInfo.getRoots();
     if (roots.isEmpty()) {
-      return;
+      return Collections.emptyList();
     }
 
-    for (String baseRoot : findBaseRoots(targetInfo, roots)) {
-      final ContentRootData contentRoot = new ContentRootData(PantsConstants.SYSTEM_ID, baseRoot);
-      moduleDataNode.createChild(ProjectKeys.CONTENT_ROOT, contentRoot);
+    // Every root is under exactly one base root, since the base roots are not nested.
+    final PathTrie baseRoots = findBaseRoots(targetInfo, roots);
+    final Map<String, ContentRootData> contentRoots = new LinkedHashMap<>();
+    for (String baseRoot : ContainerUtil.sorted(baseRoots.getTopAncestors(), StringUtil::naturalCompare)) {
+      contentRoots.put(baseRoot, new ContentRootData(PantsConstants.SYSTEM_ID, baseRoot));
+    }
 
-      for (ContentRoot sourceRoot : roots) {
-        final String sourceRootPathToAdd = getSourceRootRegardingTargetType(targetInfo, sourceRoot);
-        if (FileUtil.isAncestor(baseRoot, sourceRootPathToAdd, false)) {
-          try {
-            contentRoot.storePath(
-              targetInfo.getSourcesType().toExternalSystemSourceType(),
-              sourceRootPathToAdd,
-              doNotSupportPackagePrefixes(targetInfo) ? null : sourceRoot.getPackagePrefix()
-            );
-          }
-          catch (IllegalArgumentException e) {
-            LOG.warn(e);
-            // todo(fkorotkov): log and investigate exceptions from ContentRootData.storePath(ContentRootData.java:94)
-          }
-        }
+    for (ContentRoot sourceRoot : roots) {
+      final String sourceRootPathToAdd = getSourceRootRegardingTargetType(targetInfo, sourceRoot);
+      final ContentRootData contentRoot = contentRoots.get(baseRoots.findLongestPrefix(sourceRootPathToAdd));
+      try {
+        contentRoot.storePath(
+          targetInfo.getSourcesType().toExternalSystemSourceType(),
+          sourceRootPathToAdd,
+          doNotSupportPackagePrefixes(targetInfo) ? null : sourceRoot.getPackagePrefix()
+        );
+      }
+      catch (IllegalArgumentException e) {
+        LOG.warn(e);
+        // todo(fkorotkov): log and investigate exceptions from ContentRootData.storePath(ContentRootData.java:94)
       }
     }
+    return new ArrayList<>(contentRoots.values());
   }
 
   @NotNull
-  private List<String> findBaseRoots(@NotNull final TargetInfo targetInfo, Set<ContentRoot> roots) {
-    Set<String> allRoots = roots.stream()
-      .map(root -> getSourceRootRegardingTargetType(targetInfo, root))
-      .collect(Collectors.toSet());
-
-    final List<String> sortedRoots = ContainerUtil.sorted(
-      allRoots,
-      StringUtil::naturalCompare
-    );
-
-    final List<String> baseRoots = new ArrayList<>();
-    for (String root : sortedRoots) {
-      if (!hasAnAncestorRoot(baseRoots, root)) {
-        baseRoots.add(root);
-      }
+  private PathTrie findBaseRoots(@NotNull final TargetInfo targetInfo, Set<ContentRoot> roots) {
+    final PathTrie allRoots = new PathTrie();
+    for (ContentRoot root : roots) {
+      allRoots.add(getSourceRootRegardingTargetType(targetInfo, root));
     }
-    return baseRoots;
+    return new PathTrie(allRoots.getTopAncestors());
   }
 }
@@ -0,0 +1,53 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.wave;
+
+import com.intellij.openapi.externalSystem.model.Key;
+import com.intellij.openapi.externalSystem.model.project.AbstractExternalEntityData;
+import com.intellij.serialization.PropertyMapping;
+import com.twitter.intellij.pants.service.project.metadata.TargetMetadata;
+import com.twitter.intellij.pants.util.PantsConstants;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Marks a project node which is not the last wave of its import, see {@link PantsImportWaves}.
+ * Processed after everything else, so that the next wave is only imported once this one is committed.
+ */
+public class ImportWaveData extends AbstractExternalEntityData {
+  private static final long serialVersionUID = 1L;
+  @NotNull
+  public static final Key<ImportWaveData> KEY =
+    Key.create(ImportWaveData.class, TargetMetadata.KEY.getProcessingWeight() + 1);
+
+  private final String myLinkedProjectPath;
+  private final int myMaxLevel;
+  private final long myGeneration;
+
+  @PropertyMapping({"myLinkedProjectPath", "myMaxLevel", "myGeneration"})
+  public ImportWaveData(@NotNull String linkedProjectPath, int maxLevel, long generation) {
+    super(PantsConstants.SYSTEM_ID);
+    myLinkedProjectPath = linkedProjectPath;
+    myMaxLevel = maxLevel;
+    myGeneration = generation;
+  }
+
+  @NotNull
+  public String getLinkedProjectPath() {
+    return myLinkedProjectPath;
+  }
+
+  /**
+   * @return the deepest level of the build graph whose modules are in the wave.
+   */
+  public int getMaxLevel() {
+    return myMaxLevel;
+  }
+
+  /**
+   * @return the import the wave belongs to, the later imports of the same project have greater generations.
+   */
+  public long getGeneration() {
+    return myGeneration;
+  }
+}
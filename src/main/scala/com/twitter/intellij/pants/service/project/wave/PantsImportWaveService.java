@@ -0,0 +1,38 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.wave;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.Key;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.externalSystem.service.project.IdeModelsProvider;
+import com.intellij.openapi.externalSystem.service.project.manage.AbstractProjectDataService;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+
+/**
+ * Starts the import of the next wave of a project once the modules of the current one are committed.
+ */
+public class PantsImportWaveService extends AbstractProjectDataService<ImportWaveData, Void> {
+  @NotNull
+  @Override
+  public Key<ImportWaveData> getTargetDataKey() {
+    return ImportWaveData.KEY;
+  }
+
+  @Override
+  public void onSuccessImport(
+    @NotNull Collection<DataNode<ImportWaveData>> imported,
+    @Nullable ProjectData projectData,
+    @NotNull Project project,
+    @NotNull IdeModelsProvider modelsProvider
+  ) {
+    for (DataNode<ImportWaveData> node : imported) {
+      PantsImportWaves.importNextWave(project, node.getData());
+    }
+  }
+}
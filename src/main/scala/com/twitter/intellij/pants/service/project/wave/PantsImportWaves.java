@@ -0,0 +1,214 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.wave;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.ProjectKeys;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ModuleDependencyData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.externalSystem.service.project.ProjectDataManager;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.project.Project;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
+import com.twitter.intellij.pants.service.project.model.graph.BuildGraphNode;
+import com.twitter.intellij.pants.settings.PantsSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports a new project in waves, ordered by the level of the targets in the {@link BuildGraph}: the first wave has
+ * the modules of the target roots and of their direct dependencies, and each next wave the modules of twice as many
+ * levels, until the last one, which is the whole project. Each wave is imported once the previous one is committed,
+ * see {@link PantsImportWaveService}, so the code of the selected targets can be edited while the rest is imported.
+ * <p>
+ * A wave has all the nodes of the previous one, so that importing it never removes a module of the previous one
+ * as an orphan. Only new projects are imported in waves: the modules of an imported project stay usable during a
+ * re-import anyway, and its existing modules which are not in the first wave would be removed and created again.
+ * <p>
+ * Each import of a linked project has a new generation, and a wave is only imported while its generation is the
+ * last one, so that the waves of an import never overwrite the result of a later import of the same project.
+ */
+public class PantsImportWaves {
+  private static final Logger LOG = Logger.getInstance(PantsImportWaves.class);
+
+  public static final String SYSTEM_PROPERTY_IMPORT_WAVES_ENABLE = "pants.import.waves.enable";
+
+  private static final int FIRST_WAVE_MAX_LEVEL = 1;
+
+  private static final AtomicLong lastGeneration = new AtomicLong();
+  // The generation of the last import, by linked project path.
+  private static final Map<String, Long> importGenerations = new ConcurrentHashMap<>();
+  // The waves left to import, by linked project path.
+  private static final Map<String, List<DataNode<ProjectData>>> pendingWaves = new ConcurrentHashMap<>();
+
+  /**
+   * @return the first wave of the project node, or the project node itself if it is not imported in waves.
+   * The other waves are imported after it.
+   */
+  @NotNull
+  public static DataNode<ProjectData> split(
+    @Nullable Project project,
+    @NotNull ProjectInfo projectInfo,
+    @NotNull DataNode<ProjectData> projectDataNode
+  ) {
+    final String linkedProjectPath = projectDataNode.getData().getLinkedExternalProjectPath();
+    final long generation = lastGeneration.incrementAndGet();
+    importGenerations.put(linkedProjectPath, generation);
+    pendingWaves.remove(linkedProjectPath);
+    if (!Boolean.getBoolean(SYSTEM_PROPERTY_IMPORT_WAVES_ENABLE) ||
+        project == null ||
+        ModuleManager.getInstance(project).getModules().length > 0) {
+      return projectDataNode;
+    }
+    final List<DataNode<ProjectData>> waves;
+    try {
+      waves = createWaves(getTargetLevels(projectInfo), projectDataNode, generation);
+    }
+    catch (BuildGraph.NoTargetRootException e) {
+      LOG.info("Importing all modules at once, there are no target roots");
+      return projectDataNode;
+    }
+    if (waves.size() < 2) {
+      return projectDataNode;
+    }
+    LOG.info(String.format("Importing %s in %d waves", linkedProjectPath, waves.size()));
+    pendingWaves.put(linkedProjectPath, new ArrayList<>(waves.subList(1, waves.size())));
+    return waves.get(0);
+  }
+
+  /**
+   * Imports the wave after the given one in the background, if the project is still waiting for it.
+   */
+  static void importNextWave(@NotNull Project project, @NotNull ImportWaveData importedWave) {
+    final List<DataNode<ProjectData>> waves = pendingWaves.get(importedWave.getLinkedProjectPath());
+    if (waves == null || !isLastGeneration(importedWave)) {
+      return;
+    }
+    final DataNode<ProjectData> nextWave;
+    synchronized (waves) {
+      if (waves.isEmpty()) {
+        return;
+      }
+      nextWave = waves.remove(0);
+    }
+    if (waves.isEmpty()) {
+      pendingWaves.remove(importedWave.getLinkedProjectPath(), waves);
+    }
+    ApplicationManager.getApplication().executeOnPooledThread(() -> {
+      // The project may have been imported again since the wave was queued.
+      if (!project.isDisposed() && isLastGeneration(importedWave)) {
+        LOG.info(String.format("Importing the modules deeper than level %d", importedWave.getMaxLevel()));
+        ProjectDataManager.getInstance().importData(nextWave, project, false);
+      }
+    });
+  }
+
+  private static boolean isLastGeneration(@NotNull ImportWaveData wave) {
+    return Long.valueOf(wave.getGeneration()).equals(importGenerations.get(wave.getLinkedProjectPath()));
+  }
+
+  /**
+   * Forgets the waves left to import for the linked projects of a closed project.
+   */
+  public static void unregisterProject(@NotNull Project project) {
+    PantsSettings.getInstance(project).getLinkedProjectsSettings().forEach(settings -> {
+      importGenerations.remove(settings.getExternalProjectPath());
+      pendingWaves.remove(settings.getExternalProjectPath());
+    });
+  }
+
+  /**
+   * @return the level of each target, see {@link BuildGraph#getNodesUpToLevel}, -1 if no target root reaches it.
+   */
+  @NotNull
+  static Map<String, Integer> getTargetLevels(@NotNull ProjectInfo projectInfo) {
+    final Map<String, Integer> result = new HashMap<>();
+    for (BuildGraphNode node : new BuildGraph(projectInfo.getTargets()).getNodesUpToLevel(Integer.MAX_VALUE)) {
+      result.put(node.getAddress(), node.getLevel());
+    }
+    for (String targetName : projectInfo.getTargets().keySet()) {
+      result.putIfAbsent(targetName, -1);
+    }
+    return result;
+  }
+
+  /**
+   * @param targetLevels the level of each target. The modules of the targets no target root reaches are only
+   *                     in the last wave, and the modules which are not made of a target, e.g. the one of
+   *                     the project directory, are in all waves.
+   * @param generation   the generation of the import, see {@link ImportWaveData#getGeneration()}.
+   * @return copies of the project node with the modules up to the level of each wave, the last one being the node itself.
+   */
+  @NotNull
+  static List<DataNode<ProjectData>> createWaves(
+    @NotNull Map<String, Integer> targetLevels,
+    @NotNull DataNode<ProjectData> projectDataNode,
+    long generation
+  ) {
+    int maxLevel = 0;
+    for (DataNode<?> child : projectDataNode.getChildren()) {
+      maxLevel = Math.max(maxLevel, getLevel(child, targetLevels));
+    }
+
+    final List<DataNode<ProjectData>> result = new ArrayList<>();
+    for (int waveMaxLevel = FIRST_WAVE_MAX_LEVEL; waveMaxLevel < maxLevel; waveMaxLevel *= 2) {
+      final Set<String> excludedModules = new HashSet<>();
+      for (DataNode<?> child : projectDataNode.getChildren()) {
+        final int level = getLevel(child, targetLevels);
+        if (level < 0 || level > waveMaxLevel) {
+          excludedModules.add(((ModuleData) child.getData()).getId());
+        }
+      }
+      final DataNode<ProjectData> wave = new DataNode<>(ProjectKeys.PROJECT, projectDataNode.getData(), null);
+      for (DataNode<?> child : projectDataNode.getChildren()) {
+        final ModuleData moduleData = child.getData(ProjectKeys.MODULE);
+        if (moduleData == null || !excludedModules.contains(moduleData.getId())) {
+          addCopy(wave, child, excludedModules);
+        }
+      }
+      wave.createChild(
+        ImportWaveData.KEY,
+        new ImportWaveData(projectDataNode.getData().getLinkedExternalProjectPath(), waveMaxLevel, generation)
+      );
+      result.add(wave);
+    }
+    result.add(projectDataNode);
+    return result;
+  }
+
+  /**
+   * @return the level of the target of a module node, -1 if no target root reaches it, and 0 for the other nodes.
+   */
+  private static int getLevel(@NotNull DataNode<?> node, @NotNull Map<String, Integer> targetLevels) {
+    final ModuleData moduleData = node.getData(ProjectKeys.MODULE);
+    return moduleData != null ? targetLevels.getOrDefault(moduleData.getId(), 0) : 0;
+  }
+
+  /**
+   * Copies the node with its children, except the dependencies on the excluded modules.
+   */
+  private static <T> void addCopy(@NotNull DataNode<?> parent, @NotNull DataNode<T> node, @NotNull Set<String> excludedModules) {
+    final ModuleDependencyData dependency = node.getData(ProjectKeys.MODULE_DEPENDENCY);
+    if (dependency != null && excludedModules.contains(dependency.getTarget().getId())) {
+      return;
+    }
+    final DataNode<T> copy = parent.createChild(node.getKey(), node.getData());
+    for (DataNode<?> child : node.getChildren()) {
+      addCopy(copy, child, excludedModules);
+    }
+  }
+}
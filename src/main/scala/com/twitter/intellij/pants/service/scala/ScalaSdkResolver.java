@@ -17,6 +17,7 @@ import com.intellij.util.containers.ContainerUtil;
 import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
 import com.twitter.intellij.pants.service.project.model.graph.BuildGraph;
 import com.twitter.intellij.pants.service.project.PantsResolverExtension;
+import com.twitter.intellij.pants.service.project.model.FileExistenceCache;
 import com.twitter.intellij.pants.service.project.model.LibraryInfo;
 import com.twitter.intellij.pants.service.project.model.ProjectInfo;
 import com.twitter.intellij.pants.service.project.model.TargetInfo;
@@ -27,9 +28,11 @@ import org.jetbrains.annotations.NotNull;
 import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ScalaSdkResolver implements PantsResolverExtension {
   private static final Logger LOG = Logger.getInstance(ScalaSdkResolver.class);
@@ -42,21 +45,31 @@ public class ScalaSdkResolver implements PantsResolverExtension {
     @NotNull Map<String, DataNode<ModuleData>> modules,
     @NotNull Optional<BuildGraph> buildGraph
   ) {
-    final Map<String, Set<String>> scalaLibId2Jars = new HashMap<>();
+    final Map<String, String> scalaLibId2Path = new LinkedHashMap<>();
     for (String libId : ContainerUtil.sorted(projectInfo.getLibraries().keySet())) {
       if (PantsScalaUtil.isScalaLibraryLib(libId)) {
         final LibraryInfo scalaLib = projectInfo.getLibraries(libId);
         final String scalaLibPath = scalaLib != null ? scalaLib.getDefault() : null;
-        if (scalaLibPath == null) {
-          continue;
-        }
-        final Set<String> scalaSdkJars = new HashSet<>();
-        for (String scalaLibNameToAdd : PantsScalaUtil.getScalaLibNamesToAdd()) {
-          findAndAddScalaLib(scalaSdkJars, scalaLibPath, scalaLibNameToAdd);
+        if (scalaLibPath != null) {
+          scalaLibId2Path.put(libId, scalaLibPath);
         }
-        scalaLibId2Jars.put(libId, scalaSdkJars);
       }
     }
+    final FileExistenceCache fileExistence = projectInfo.getFileExistenceCache();
+    fileExistence.prefetch(
+      scalaLibId2Path.values().stream()
+        .flatMap(path -> PantsScalaUtil.getScalaLibNamesToAdd().stream().map(name -> PantsScalaUtil.getScalaLibFile(path, name).getPath()))
+        .collect(Collectors.toList())
+    );
+
+    final Map<String, Set<String>> scalaLibId2Jars = new HashMap<>();
+    for (Map.Entry<String, String> entry : scalaLibId2Path.entrySet()) {
+      final Set<String> scalaSdkJars = new HashSet<>();
+      for (String scalaLibNameToAdd : PantsScalaUtil.getScalaLibNamesToAdd()) {
+        findAndAddScalaLib(fileExistence, scalaSdkJars, entry.getValue(), scalaLibNameToAdd);
+      }
+      scalaLibId2Jars.put(entry.getKey(), scalaSdkJars);
+    }
 
     final String defaultScalaLibId = ContainerUtil.getFirstItem(scalaLibId2Jars.keySet());
 
@@ -105,9 +118,9 @@ public class ScalaSdkResolver implements PantsResolverExtension {
     }
   }
 
-  private void findAndAddScalaLib(Set<String> files, String jarPath, String libName) {
+  private void findAndAddScalaLib(FileExistenceCache fileExistence, Set<String> files, String jarPath, String libName) {
     final File libFile = PantsScalaUtil.getScalaLibFile(jarPath, libName);
-    if (libFile.exists()) {
+    if (fileExistence.exists(libFile.getPath())) {
       files.add(libFile.getAbsolutePath());
     } else {
       LOG.warn("Could not find scala library path: " + libFile);
@@ -41,6 +41,10 @@ public class MetricsIntegrationTest extends OSSPantsIntegrationTest {
     assertTrue(0 <= result.get("export_second"));
     assertTrue(0 <= result.get("load_second"));
     assertTrue(0 <= result.get("indexing_second"));
+    assertTrue(0 <= result.get("import_phase_export_millisecond"));
+    assertTrue(0 <= result.get("import_phase_parse_millisecond"));
+    assertTrue(0 < result.get("import_targets_count"));
+    assertTrue(0 < result.get("import_modules_count"));
   }
 
   @Override
@@ -32,6 +32,19 @@ public class MetricsUnitTest extends TestCase {
     assertTrue(0 < result.get("indexing_second"));
   }
 
+  public void testImportPhases() {
+    PantsMetrics.timeImportPhase(PantsMetrics.IMPORT_PHASE_PARSE, () -> sleep(50));
+    PantsMetrics.timeImportPhase(PantsMetrics.IMPORT_PHASE_PARSE, () -> sleep(50));
+    PantsMetrics.recordImportCount(PantsMetrics.IMPORT_COUNT_TARGETS, 42);
+    Map<String, Long> result = PantsMetrics.getCurrentResult();
+    assertTrue(100 <= result.get("import_phase_parse_millisecond"));
+    assertEquals(Long.valueOf(42), result.get("import_targets_count"));
+    assertTrue(0 == result.get("export_second"));
+
+    PantsMetrics.initialize();
+    assertNull(PantsMetrics.getCurrentResult().get("import_phase_parse_millisecond"));
+  }
+
   public void testMetricsEnabled() throws Exception {
     try {
       illegalCalls();
@@ -47,6 +60,15 @@ public class MetricsUnitTest extends TestCase {
     illegalCalls();
   }
 
+  private static void sleep(long milliSeconds) {
+    try {
+      Thread.sleep(milliSeconds);
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private void illegalCalls() throws Exception {
     PantsMetrics.markIndexStart();
     PantsMetrics.markIndexStart();
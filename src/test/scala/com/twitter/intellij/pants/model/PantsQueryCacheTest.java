@@ -0,0 +1,74 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.model;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.util.PantsConstants;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Optional;
+
+public class PantsQueryCacheTest extends TestCase {
+
+  private static final String OUTPUT = "pants_version = 1.26.0 (from HARDCODED)";
+
+  private File myBuildRoot;
+  private String myPantsExecutable;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBuildRoot = FileUtil.createTempDirectory("pants_query_cache", "");
+    final File pantsExecutable = new File(myBuildRoot, PantsConstants.PANTS);
+    FileUtil.writeToFile(pantsExecutable, "#!/bin/bash");
+    FileUtil.writeToFile(new File(myBuildRoot, PantsConstants.PANTS_INI), "[GLOBAL]\npants_version: 1.26.0");
+    myPantsExecutable = pantsExecutable.getPath();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myBuildRoot);
+    super.tearDown();
+  }
+
+  public void testHit() {
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS).isPresent());
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS, OUTPUT);
+    assertEquals(Optional.of(OUTPUT), PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS));
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT).isPresent());
+  }
+
+  public void testMissOnChangedConfig() throws Exception {
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS, OUTPUT);
+    FileUtil.writeToFile(new File(myBuildRoot, PantsConstants.PANTS_INI), "[GLOBAL]\npants_version: 1.27.0");
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS).isPresent());
+  }
+
+  public void testMissOnNewRcFile() throws Exception {
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS, OUTPUT);
+    FileUtil.writeToFile(new File(myBuildRoot, IJRC.IMPORT_RC_FILENAME), "[GLOBAL]\nlevel: debug");
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS).isPresent());
+  }
+
+  public void testInvalidate() {
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS, OUTPUT);
+    PantsQueryCache.invalidate(myBuildRoot);
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS).isPresent());
+  }
+
+  public void testRemove() {
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS, OUTPUT);
+    PantsQueryCache.store(myPantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT, OUTPUT);
+    PantsQueryCache.remove(myPantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT);
+    assertFalse(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_SIMPLE_EXPORT).isPresent());
+    assertTrue(PantsQueryCache.load(myPantsExecutable, PantsQueryCache.QUERY_OPTIONS).isPresent());
+  }
+
+  public void testIsConfigFile() {
+    assertTrue(PantsQueryCache.isConfigFile(PantsConstants.PANTS_TOML));
+    assertTrue(PantsQueryCache.isConfigFile(".pants.rc"));
+    assertFalse(PantsQueryCache.isConfigFile("BUILD"));
+  }
+}
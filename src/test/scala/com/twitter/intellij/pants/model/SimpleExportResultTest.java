@@ -198,4 +198,22 @@ public class SimpleExportResultTest extends LightPlatformTestCase {
     // as far as this plugin is concerned.
     assertFalse(exportResult.getJdkHome(STRICT).isPresent());
   }
+
+  public void testFindMissingJdkHome() {
+    final String jdkHome = System.getProperty("java.home").replace("\\", "/");
+    final String exportOutput =
+      "{\n" +
+      "    \"version\": \"1.0.7\",\n" +
+      "    \"preferred_jvm_distributions\": {\n" +
+      "        \"java8\": {\"strict\": \"" + jdkHome + "\", \"non_strict\": \"" + jdkHome + "\"}\n" +
+      "    },\n" +
+      "    \"jvm_platforms\": {\"platforms\": {}, \"default_platform\": \"java8\"}\n" +
+      "}";
+    assertFalse(SimpleExportResult.parse(exportOutput).findMissingJdkHome().isPresent());
+    assertEquals(
+      "/no/such/jdk",
+      SimpleExportResult.parse(exportOutput.replaceFirst("\"non_strict\": \"[^\"]*\"", "\"non_strict\": \"/no/such/jdk\""))
+        .findMissingJdkHome().orElse(null)
+    );
+  }
 }
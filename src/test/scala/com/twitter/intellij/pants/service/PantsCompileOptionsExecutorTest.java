@@ -0,0 +1,37 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class PantsCompileOptionsExecutorTest extends TestCase {
+
+  public void testSplitIntoShards() {
+    assertEquals(
+      Arrays.asList(Arrays.asList("a::", "c::", "e:e"), Arrays.asList("b::", "d:d")),
+      PantsCompileOptionsExecutor.splitIntoShards(Arrays.asList("a::", "b::", "c::", "d:d", "e:e"), 2)
+    );
+  }
+
+  public void testNoMoreShardsThanSpecs() {
+    assertEquals(
+      Arrays.asList(Collections.singletonList("a::"), Collections.singletonList("b::")),
+      PantsCompileOptionsExecutor.splitIntoShards(Arrays.asList("a::", "b::"), 8)
+    );
+  }
+
+  public void testSingleShard() {
+    assertEquals(
+      Collections.singletonList(Arrays.asList("a::", "b::")),
+      PantsCompileOptionsExecutor.splitIntoShards(Arrays.asList("a::", "b::"), 1)
+    );
+    assertEquals(
+      Collections.singletonList(Collections.emptyList()),
+      PantsCompileOptionsExecutor.splitIntoShards(Collections.emptyList(), 4)
+    );
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoStreamingParser;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PantsExportCacheTest extends TestCase {
+
+  private static final String OPTIONS = "pants_version=1.26.0";
+
+  private File myBuildRoot;
+  private File myJar;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBuildRoot = FileUtil.createTempDirectory("pants_export_cache", "");
+    myJar = new File(myBuildRoot, "ivy/junit.jar");
+    FileUtil.writeToFile(myJar, "");
+    writeBuildFile("src/java/a/BUILD", "java_library(dependencies=['src/java/b', '3rdparty:junit'])");
+    writeBuildFile("src/java/b/BUILD", "java_library()");
+    FileUtil.writeToFile(new File(myBuildRoot, "src/java/b/org/b/B.java"), "");
+    writeBuildFile("3rdparty/BUILD", "jar_library(name='junit')");
+    writeBuildFile("src/scala/c/BUILD", "scala_library()");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myBuildRoot);
+    super.tearDown();
+  }
+
+  public void testHit() throws Exception {
+    store(Collections.singletonList("src/java/a:a"));
+    assertTrue(newCache(Collections.singletonList("src/java/a:a"), OPTIONS).load().isPresent());
+  }
+
+  public void testMissOnOtherSpecsOrOptions() throws Exception {
+    store(Collections.singletonList("src/java/a:a"));
+    assertFalse(newCache(Arrays.asList("src/java/a:a", "src/scala/c:c"), OPTIONS).load().isPresent());
+    assertFalse(newCache(Collections.singletonList("src/java/a:a"), "pants_version=1.27.0").load().isPresent());
+  }
+
+  public void testMissOnChangedDependencyBuildFile() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    store(specs);
+    writeBuildFile("src/java/b/BUILD", "java_library(dependencies=['src/scala/c'])");
+    assertFalse(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  public void testHitOnUnrelatedBuildFileChange() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    store(specs);
+    writeBuildFile("src/scala/c/BUILD", "scala_library(name='other')");
+    assertTrue(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  public void testMissOnNewBuildFileUnderRecursiveSpec() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java::");
+    store(specs);
+    assertTrue(newCache(specs, OPTIONS).load().isPresent());
+    writeBuildFile("src/java/d/BUILD", "java_library()");
+    assertFalse(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  public void testMissOnNewPackageUnderSourceRoot() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    store(specs);
+    FileUtil.writeToFile(new File(myBuildRoot, "src/java/b/org/b/B2.java"), "");
+    assertTrue(newCache(specs, OPTIONS).load().isPresent());
+    assertTrue(new File(myBuildRoot, "src/java/b/org/c").mkdirs());
+    assertFalse(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  public void testLoadOutdated() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    store(specs);
+    writeBuildFile("src/java/b/BUILD", "java_library(dependencies=['src/scala/c'])");
+    final PantsExportCache cache = newCache(specs, OPTIONS);
+    assertFalse(cache.load().isPresent());
+    assertFalse(cache.loadOutdated(Collections.singleton("src/java/a")).isPresent());
+    assertTrue(cache.loadOutdated(Sets.newHashSet("src/java/a", "src/java/b")).isPresent());
+  }
+
+  public void testMissOnDeletedJar() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    store(specs);
+    assertTrue(myJar.delete());
+    assertFalse(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  public void testNotStoredIfBuildFileChangedDuringExport() throws Exception {
+    final List<String> specs = Collections.singletonList("src/java/a:a");
+    final PantsExportCache cache = newCache(specs, OPTIONS);
+    final File exportFile = writeExportFile();
+    final long exportStart = System.currentTimeMillis();
+    FileUtil.writeToFile(new File(myBuildRoot, "src/java/b/BUILD"), "java_library(name='b')");
+    cache.store(ProjectInfoStreamingParser.parse(exportFile), exportStart);
+    assertFalse(newCache(specs, OPTIONS).load().isPresent());
+  }
+
+  private void store(@NotNull List<String> specs) throws IOException {
+    final File exportFile = writeExportFile();
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(exportFile);
+    newCache(specs, OPTIONS).store(projectInfo, System.currentTimeMillis());
+  }
+
+  @NotNull
+  private PantsExportCache newCache(@NotNull List<String> specs, @NotNull String options) {
+    return new PantsExportCache(myBuildRoot, specs, options);
+  }
+
+  @NotNull
+  private File writeExportFile() throws IOException {
+    final String export =
+      "{\n" +
+      "  \"version\": \"1.0.9\",\n" +
+      "  \"libraries\": {\"junit:junit:4.12\": {\"default\": \"" + myJar.getPath() + "\"}},\n" +
+      "  \"targets\": {\n" +
+      "    \"src/java/a:a\": {\"targets\": [\"src/java/b:b\", \"3rdparty:junit\"], \"pants_target_type\": \"java_library\"},\n" +
+      "    \"src/java/b:b\": {\"targets\": [], \"pants_target_type\": \"java_library\",\n" +
+      "      \"roots\": [{\"source_root\": \"" + new File(myBuildRoot, "src/java/b/org/b").getPath() + "\", \"package_prefix\": \"org.b\"}]},\n" +
+      "    \"3rdparty:junit\": {\"targets\": [], \"libraries\": [\"junit:junit:4.12\"], \"pants_target_type\": \"jar_library\"}\n" +
+      "  }\n" +
+      "}\n";
+    final File exportFile = new File(myBuildRoot, "export.out");
+    FileUtil.writeToFile(exportFile, export);
+    // Sanity check that the export itself is valid.
+    ProjectInfoStreamingParser.parse(new StringReader(export));
+    return exportFile;
+  }
+
+  /**
+   * Writes a BUILD file that looks like it was last modified well before any export started.
+   */
+  private void writeBuildFile(@NotNull String relativePath, @NotNull String content) throws IOException {
+    final File buildFile = new File(myBuildRoot, relativePath);
+    FileUtil.writeToFile(buildFile, content);
+    assertTrue(buildFile.setLastModified(System.currentTimeMillis() - 60_000));
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoStreamingParser;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class PantsIncrementalExportTest extends TestCase {
+
+  private static final List<String> SPECS = Collections.singletonList("src/java::");
+
+  // app -> service -> util, tool -> util, and app -> 3rdparty:guava
+  private static final String PREVIOUS_EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"libraries\": {\"com.google.guava:guava:20.0\": {\"default\": \"/ivy/guava-20.jar\"}},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/app:app\": {\"targets\": [\"src/java/service:service\", \"3rdparty:guava\"], \"is_target_root\": true},\n" +
+    "    \"src/java/service:service\": {\"targets\": [\"src/java/util:util\"], \"is_target_root\": true},\n" +
+    "    \"src/java/util:util\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"src/java/util:old\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"src/java/tool:tool\": {\"targets\": [\"src/java/util:util\"], \"is_target_root\": true},\n" +
+    "    \"src/java/other:other\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"src/java/other2:other2\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"src/java/other3:other3\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"src/java/other4:other4\": {\"targets\": [], \"is_target_root\": true},\n" +
+    "    \"3rdparty:guava\": {\"targets\": [], \"libraries\": [\"com.google.guava:guava:20.0\"], \"is_target_root\": false}\n" +
+    "  }\n" +
+    "}\n";
+
+  // `src/java/util:old` was removed and `src/java/util:new` added, with a new guava version.
+  private static final String INCREMENTAL_EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"libraries\": {\"com.google.guava:guava:21.0\": {\"default\": \"/ivy/guava-21.jar\"}},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/util:util\": {\"targets\": [\"src/java/util:new\"], \"is_target_root\": true},\n" +
+    "    \"src/java/util:new\": {\"targets\": [\"3rdparty:guava\"], \"is_target_root\": true},\n" +
+    "    \"3rdparty:guava\": {\"targets\": [], \"libraries\": [\"com.google.guava:guava:21.0\"], \"is_target_root\": false},\n" +
+    "    \"src/java/service:service\": {\"targets\": [\"src/java/util:util\"], \"is_target_root\": true},\n" +
+    "    \"src/java/tool:tool\": {\"targets\": [\"src/java/util:util\"], \"is_target_root\": true},\n" +
+    "    \"src/java/app:app\": {\"targets\": [\"src/java/service:service\", \"3rdparty:guava\"], \"is_target_root\": true}\n" +
+    "  }\n" +
+    "}\n";
+
+  private File myBuildRoot;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myBuildRoot = FileUtil.createTempDirectory("pants_incremental_export", "");
+    FileUtil.writeToFile(new File(myBuildRoot, "src/java/util/BUILD"), "java_library()");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myBuildRoot);
+    super.tearDown();
+  }
+
+  public void testSpecsToExportAreChangedDirectoriesAndDependees() throws Exception {
+    final PantsIncrementalExport export = newIncrementalExport(Collections.singleton("src/java/util"));
+    assertEquals(
+      Optional.of(Arrays.asList("src/java/app:app", "src/java/service:service", "src/java/tool:tool", "src/java/util:")),
+      export.getSpecsToExport()
+    );
+  }
+
+  public void testDeletedDirectoryIsNotExported() throws Exception {
+    final PantsIncrementalExport export = newIncrementalExport(Collections.singleton("src/java/other"));
+    assertEquals(Optional.of(Collections.emptyList()), export.getSpecsToExport());
+  }
+
+  public void testNewDirectoryIsExportedOnlyIfASpecCoversIt() throws Exception {
+    FileUtil.writeToFile(new File(myBuildRoot, "src/java/added/BUILD"), "java_library()");
+    // Changed for another project on the same build root.
+    FileUtil.writeToFile(new File(myBuildRoot, "src/python/unrelated/BUILD"), "python_library()");
+    final PantsIncrementalExport export = newIncrementalExport(Sets.newHashSet("src/java/added", "src/python/unrelated"));
+    assertEquals(Optional.of(Collections.singletonList("src/java/added:")), export.getSpecsToExport());
+  }
+
+  public void testFullExportWhenMostTargetsAreAffected() throws Exception {
+    final PantsIncrementalExport export = newIncrementalExport(Sets.newHashSet("src/java/util", "3rdparty"));
+    assertEquals(Optional.empty(), export.getSpecsToExport());
+  }
+
+  public void testSplice() throws Exception {
+    final PantsIncrementalExport export = newIncrementalExport(Collections.singleton("src/java/util"));
+    final ProjectInfo projectInfo = export.splice(ProjectInfoStreamingParser.parse(new StringReader(INCREMENTAL_EXPORT)));
+
+    assertNull(projectInfo.getTarget("src/java/util:old"));
+    assertNotNull(projectInfo.getTarget("src/java/other:other"));
+    final TargetInfo util = projectInfo.getTarget("src/java/util:util");
+    assertNotNull(util);
+    assertEquals(Collections.singleton("src/java/util:new"), util.getTargets());
+    final TargetInfo newTarget = projectInfo.getTarget("src/java/util:new");
+    assertNotNull(newTarget);
+    assertTrue(newTarget.getAddressInfos().iterator().next().isTargetRoot());
+    final TargetInfo guava = projectInfo.getTarget("3rdparty:guava");
+    assertNotNull(guava);
+    assertFalse(guava.getAddressInfos().iterator().next().isTargetRoot());
+    assertEquals(Collections.singleton("com.google.guava:guava:21.0"), guava.getLibraries());
+    assertNotNull(projectInfo.getLibraries("com.google.guava:guava:21.0"));
+  }
+
+  public void testMatchesSpec() {
+    assertTrue(PantsIncrementalExport.matchesSpec("src/java/a:b", "src/java::"));
+    assertTrue(PantsIncrementalExport.matchesSpec("src/java/a:b", "::"));
+    assertTrue(PantsIncrementalExport.matchesSpec("src/java/a:b", "src/java/a:"));
+    assertTrue(PantsIncrementalExport.matchesSpec("src/java/a:b", "//src/java/a:b"));
+    assertTrue(PantsIncrementalExport.matchesSpec("src/java/a:a", "src/java/a"));
+    assertFalse(PantsIncrementalExport.matchesSpec("src/java/a:b", "src/java/a"));
+    assertFalse(PantsIncrementalExport.matchesSpec("src/javascript:b", "src/java::"));
+    assertFalse(PantsIncrementalExport.matchesSpec("src/java/a/c:c", "src/java/a:"));
+  }
+
+  @NotNull
+  private PantsIncrementalExport newIncrementalExport(@NotNull Set<String> changedDirectories) throws Exception {
+    final ProjectInfo previous = ProjectInfoStreamingParser.parse(new StringReader(PREVIOUS_EXPORT));
+    return new PantsIncrementalExport(myBuildRoot, previous, changedDirectories, SPECS);
+  }
+}
@@ -0,0 +1,122 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.ProjectKeys;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.externalSystem.util.ExternalSystemApiUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.stream.Collectors;
+
+public class PantsPartialResolveTest extends PantsResolverTestBase {
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    for (int i = 0; i < 50; i++) {
+      addInfo("src/java/" + i + ":java")
+        .withRoot("src/java/" + i, "com.foo" + i)
+        .withDependency("src/scala/" + i + ":scala")
+        .withDependency("3rdparty:lib" + (i % 5));
+      addInfo("src/scala/" + i + ":scala")
+        .withRoot("src/scala/" + i, "com.bar" + i);
+    }
+    for (int i = 0; i < 5; i++) {
+      addJarLibrary("3rdparty:lib" + i);
+    }
+  }
+
+  public void testChangedTarget() {
+    final DataNode<ProjectData> before = createProjectNode();
+    addInfo("src/scala/7:scala")
+      .withRoot("src/scala/7", "com.bar7")
+      .withRoot("src/scala/7/gen", "com.bar7.gen");
+    final DataNode<ProjectData> partial = createProjectNode();
+
+    // Only the changed target and its dependee are resolved again, the modules of the others are copies.
+    assertReused(before, partial, "src/java/6:java");
+    assertReused(before, partial, "src/scala/6:scala");
+    assertNotSame(findModule(before, "src/java/7:java").getData(), findModule(partial, "src/java/7:java").getData());
+    assertNotSame(findModule(before, "src/scala/7:scala").getData(), findModule(partial, "src/scala/7:scala").getData());
+
+    assertEquals(dump(createFullProjectNode()), dump(partial));
+  }
+
+  public void testAddedAndRemovedTargets() {
+    createProjectNode();
+    addInfo("src/java/50:java")
+      .withRoot("src/java/50", "com.foo50")
+      .withDependency("src/java/3:java");
+    addInfo("src/java/4:java")
+      .withRoot("src/java/4", "com.foo4")
+      .withDependency("3rdparty:lib9");
+    addJarLibrary("3rdparty:lib9");
+    removeInfo("src/scala/9:scala");
+    final DataNode<ProjectData> partial = createProjectNode();
+
+    assertEquals(dump(createFullProjectNode()), dump(partial));
+  }
+
+  public void testReusedNodesAreCopied() {
+    final DataNode<ProjectData> before = createProjectNode();
+    final DataNode<ProjectData> first = createProjectNode();
+    final DataNode<ProjectData> second = createProjectNode();
+
+    assertReused(before, first, "src/java/6:java");
+    assertReused(first, second, "src/java/6:java");
+    // Changing the nodes of an import does not change the ones of the next one.
+    final DataNode<ModuleData> module = findModule(second, "src/java/6:java");
+    module.addChild(new DataNode<>(ProjectKeys.MODULE, module.getData(), null));
+    assertEquals(dump(before), dump(createProjectNode()));
+  }
+
+  @NotNull
+  private DataNode<ProjectData> createFullProjectNode() {
+    System.clearProperty(PantsPartialResolve.SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE);
+    try {
+      return createProjectNode();
+    }
+    finally {
+      System.setProperty(PantsPartialResolve.SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE, "true");
+    }
+  }
+
+  private static void assertReused(
+    @NotNull DataNode<ProjectData> before,
+    @NotNull DataNode<ProjectData> after,
+    @NotNull String targetName
+  ) {
+    final DataNode<ModuleData> moduleBefore = findModule(before, targetName);
+    final DataNode<ModuleData> moduleAfter = findModule(after, targetName);
+    assertNotSame(moduleBefore, moduleAfter);
+    assertSame(moduleBefore.getData(), moduleAfter.getData());
+    assertEquals(dump(moduleBefore), dump(moduleAfter));
+  }
+
+  @NotNull
+  private static DataNode<ModuleData> findModule(@NotNull DataNode<ProjectData> projectNode, @NotNull String targetName) {
+    final DataNode<ModuleData> result = ExternalSystemApiUtil.find(
+      projectNode,
+      ProjectKeys.MODULE,
+      node -> targetName.equals(node.getData().getId())
+    );
+    assertNotNull(result);
+    return result;
+  }
+
+  /**
+   * Children are sorted, since the reused nodes come before the resolved ones.
+   */
+  @NotNull
+  private static String dump(@NotNull DataNode<?> node) {
+    return node.getKey().getDataType() + " " + node.getData() + "\n" +
+           node.getChildren().stream()
+             .map(PantsPartialResolveTest::dump)
+             .sorted()
+             .map(child -> child.replaceAll("(?m)^", "  "))
+             .collect(Collectors.joining());
+  }
+}
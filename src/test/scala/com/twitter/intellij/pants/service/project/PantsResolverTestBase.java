@@ -41,6 +41,8 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 abstract class PantsResolverTestBase extends PantsCodeInsightFixtureTestCase {
+  private static final String LINKED_PROJECT_PATH = "path/to/fake/project/BUILD";
+
   private Map<String, TargetInfoBuilder> myInfoBuilders = null;
   @Nullable
   private DataNode<ProjectData> myProjectNode;
@@ -50,10 +52,15 @@ abstract class PantsResolverTestBase extends PantsCodeInsightFixtureTestCase {
     super.setUp();
     myProjectNode = null;
     myInfoBuilders = new HashMap<>();
+    // A test project is resolved partially if the test creates it more than once, see PantsPartialResolveTest.
+    System.setProperty(PantsPartialResolve.SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE, "true");
+    PantsPartialResolve.clear(LINKED_PROJECT_PATH);
   }
 
   @Override
   protected void tearDown() throws Exception {
+    System.clearProperty(PantsPartialResolve.SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE);
+    PantsPartialResolve.clear(LINKED_PROJECT_PATH);
     myProjectNode = null;
     myInfoBuilders = null;
     super.tearDown();
@@ -71,7 +78,7 @@ abstract class PantsResolverTestBase extends PantsCodeInsightFixtureTestCase {
     final PantsResolver dependenciesResolver = new PantsResolver(PantsCompileOptionsExecutor.createMock());
     dependenciesResolver.setProjectInfo(getProjectInfo());
     final ProjectData projectData = new ProjectData(
-      PantsConstants.SYSTEM_ID, "test-project", "path/to/fake/project", "path/to/fake/project/BUILD"
+      PantsConstants.SYSTEM_ID, "test-project", "path/to/fake/project", LINKED_PROJECT_PATH
     );
     final DataNode<ProjectData> dataNode = new DataNode<>(ProjectKeys.PROJECT, projectData, null);
     dependenciesResolver.addInfoTo(dataNode);
@@ -112,6 +119,10 @@ abstract class PantsResolverTestBase extends PantsCodeInsightFixtureTestCase {
     return result;
   }
 
+  protected void removeInfo(String name) {
+    myInfoBuilders.remove(name);
+  }
+
   public void assertDependency(String moduleName, final String dependencyName) {
     final DataNode<ModuleData> moduleNode = findModule(moduleName);
     assertModuleExists(moduleName, moduleNode);
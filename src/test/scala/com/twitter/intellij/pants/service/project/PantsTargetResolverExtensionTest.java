@@ -0,0 +1,54 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import org.jetbrains.annotations.NotNull;
+
+public class PantsTargetResolverExtensionTest extends PantsResolverTestBase {
+  public void testParallelResolveIsSameAsSerial() {
+    for (int i = 0; i < 50; i++) {
+      addInfo("src/java/" + i + ":java")
+        .withRoot("src/java/" + i, "com.foo" + i)
+        .withRoot("src/java/" + i + "/sub", "com.foo" + i + ".sub")
+        .withDependency("src/scala/" + i + ":scala")
+        .withDependency("3rdparty:lib" + (i % 5));
+      addInfo("src/scala/" + i + ":scala")
+        .withRoot("src/scala/" + i, "com.bar" + i);
+    }
+    for (int i = 0; i < 5; i++) {
+      addJarLibrary("3rdparty:lib" + i);
+    }
+
+    final DataNode<ProjectData> serial;
+    // The second project would otherwise reuse the nodes of the first one.
+    System.clearProperty(PantsPartialResolve.SYSTEM_PROPERTY_PARTIAL_RESOLVE_ENABLE);
+    System.setProperty(PantsTargetResolverExtension.SYSTEM_PROPERTY_PARALLEL_RESOLVE_DISABLE, "true");
+    try {
+      serial = createProjectNode();
+    }
+    finally {
+      System.clearProperty(PantsTargetResolverExtension.SYSTEM_PROPERTY_PARALLEL_RESOLVE_DISABLE);
+    }
+    final DataNode<ProjectData> parallel = createProjectNode();
+
+    assertEquals(dump(serial), dump(parallel));
+    assertEquals(serial, parallel);
+  }
+
+  @NotNull
+  private static String dump(@NotNull DataNode<?> node) {
+    final StringBuilder result = new StringBuilder();
+    dump(node, "", result);
+    return result.toString();
+  }
+
+  private static void dump(@NotNull DataNode<?> node, @NotNull String indent, @NotNull StringBuilder result) {
+    result.append(indent).append(node.getKey().getDataType()).append(' ').append(node.getData()).append('\n');
+    for (DataNode<?> child : node.getChildren()) {
+      dump(child, indent + "  ", result);
+    }
+  }
+}
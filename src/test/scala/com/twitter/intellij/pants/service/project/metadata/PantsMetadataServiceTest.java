@@ -0,0 +1,112 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.metadata;
+
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.externalSystem.service.project.IdeModifiableModelsProviderImpl;
+import com.intellij.openapi.externalSystem.util.ExternalSystemConstants;
+import com.intellij.openapi.module.Module;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class PantsMetadataServiceTest extends PantsCodeInsightFixtureTestCase {
+  private static final Gson gson = new Gson();
+
+  public void testOptionsAreReadBack() {
+    final TargetMetadata metadata = createMetadata(
+      Sets.newHashSet("src/java/foo:foo", "src/java/bar:bar"),
+      Sets.newHashSet("com.google.guava", "junit")
+    );
+    importMetadata(metadata);
+
+    final Module module = getModule();
+    assertEquals(
+      metadata.getTargetAddresses(),
+      PantsUtil.getTargetAddressesFromModule(module).stream().map(PantsTargetAddress::toString).collect(Collectors.toSet())
+    );
+    assertEquals(
+      metadata.getLibraryExcludes(),
+      PantsUtil.hydrateTargetAddresses(module.getOptionValue(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY))
+    );
+    final Set<TargetAddressInfo> infos = gson.fromJson(
+      module.getOptionValue(PantsConstants.PANTS_TARGET_ADDRESS_INFOS_KEY),
+      new TypeToken<HashSet<TargetAddressInfo>>() {}.getType()
+    );
+    assertEquals(
+      Collections.singleton("src/java/foo:foo"),
+      infos.stream().map(TargetAddressInfo::getTargetAddress).collect(Collectors.toSet())
+    );
+    assertEquals(
+      Paths.get(getProject().getBasePath()).normalize().toString(),
+      module.getOptionValue(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH)
+    );
+    assertTrue(PantsUtil.isPantsModule(module));
+  }
+
+  public void testOptionsMatchPreviousEncoding() {
+    final TargetMetadata metadata = createMetadata(Collections.singleton("src/java/foo:foo"), Collections.emptySet());
+    final Map<String, String> options = PantsMetadataService.getModuleOptions(metadata, "/path/to/project", new HashMap<>());
+
+    assertEquals("pants", options.get(ExternalSystemConstants.EXTERNAL_SYSTEM_ID_KEY));
+    assertEquals(PantsUtil.dehydrateTargetAddresses(metadata.getTargetAddresses()), options.get(PantsConstants.PANTS_TARGET_ADDRESSES_KEY));
+    assertEquals(PantsUtil.dehydrateTargetAddresses(metadata.getLibraryExcludes()), options.get(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY));
+    assertEquals(gson.toJson(metadata.getTargetAddressInfoSet()), options.get(PantsConstants.PANTS_TARGET_ADDRESS_INFOS_KEY));
+    assertEquals("/path/to/project", options.get(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH));
+  }
+
+  public void testEqualOptionsAreShared() {
+    final Map<String, String> interned = new HashMap<>();
+    final Map<String, String> first = PantsMetadataService.getModuleOptions(
+      createMetadata(Collections.singleton("src/java/foo:foo"), Collections.emptySet()), null, interned
+    );
+    final Map<String, String> second = PantsMetadataService.getModuleOptions(
+      createMetadata(Collections.singleton("src/java/foo:foo"), Collections.emptySet()), null, interned
+    );
+    assertSame(first.get(PantsConstants.PANTS_TARGET_ADDRESSES_KEY), second.get(PantsConstants.PANTS_TARGET_ADDRESSES_KEY));
+    assertSame(first.get(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY), second.get(PantsConstants.PANTS_LIBRARY_EXCLUDES_KEY));
+    assertFalse(first.containsKey(PantsConstants.PANTS_OPTION_LINKED_PROJECT_PATH));
+  }
+
+  @NotNull
+  private TargetMetadata createMetadata(@NotNull Set<String> targetAddresses, @NotNull Set<String> libraryExcludes) {
+    final TargetMetadata metadata = new TargetMetadata(PantsConstants.SYSTEM_ID, getModule().getName());
+    metadata.setTargetAddresses(targetAddresses);
+    metadata.setLibraryExcludes(libraryExcludes);
+    final TargetAddressInfo info = new TargetAddressInfo();
+    info.setTargetAddress("src/java/foo:foo");
+    info.setId("src.java.foo.foo");
+    info.setPantsTargetType("java_library");
+    metadata.setTargetAddressInfoSet(Collections.singleton(info));
+    return metadata;
+  }
+
+  private void importMetadata(@NotNull TargetMetadata metadata) {
+    final ProjectData projectData =
+      new ProjectData(PantsConstants.SYSTEM_ID, "test-project", getProject().getBasePath(), getProject().getBasePath());
+    final IdeModifiableModelsProviderImpl modelsProvider = new IdeModifiableModelsProviderImpl(getProject());
+    new PantsMetadataService().importData(
+      Collections.singletonList(new DataNode<>(TargetMetadata.KEY, metadata, null)),
+      projectData,
+      getProject(),
+      modelsProvider
+    );
+    modelsProvider.dispose();
+  }
+}
@@ -0,0 +1,55 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.Arrays;
+
+public class FileExistenceCacheTest extends TestCase {
+  private File myRoot;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myRoot = FileUtil.createTempDirectory("file_existence_cache", "");
+    FileUtil.writeToFile(new File(myRoot, "ivy/junit/jars/junit-4.12.jar"), "");
+    FileUtil.writeToFile(new File(myRoot, "ivy/junit/sources/junit-4.12-sources.jar"), "");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    FileUtil.delete(myRoot);
+    super.tearDown();
+  }
+
+  public void testExists() {
+    final FileExistenceCache cache = new FileExistenceCache();
+    final String jar = path("ivy/junit/jars/junit-4.12.jar");
+    final String sources = path("ivy/junit/sources/junit-4.12-sources.jar");
+    final String javadoc = path("ivy/junit/javadoc/junit-4.12-javadoc.jar");
+    cache.prefetch(Arrays.asList(jar, sources, javadoc));
+    assertTrue(cache.exists(jar));
+    assertTrue(cache.exists(sources));
+    assertFalse(cache.exists(javadoc));
+    assertFalse(cache.exists(path("ivy/junit/jars/junit-4.11.jar")));
+    // Not prefetched.
+    assertTrue(cache.exists(path("ivy/junit")));
+    assertFalse(cache.exists(path("ivy/hamcrest/jars/hamcrest-1.3.jar")));
+  }
+
+  public void testDirectoryIsListedOnce() throws Exception {
+    final FileExistenceCache cache = new FileExistenceCache();
+    cache.prefetch(Arrays.asList(path("ivy/junit/jars/junit-4.12.jar")));
+    FileUtil.writeToFile(new File(myRoot, "ivy/junit/jars/junit-4.13.jar"), "");
+    assertFalse(cache.exists(path("ivy/junit/jars/junit-4.13.jar")));
+    assertTrue(new FileExistenceCache().exists(path("ivy/junit/jars/junit-4.13.jar")));
+  }
+
+  private String path(String relativePath) {
+    return new File(myRoot, relativePath).getPath();
+  }
+}
@@ -0,0 +1,87 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.common.collect.Sets;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+public class ProjectInfoDiffTest extends TestCase {
+
+  private static final String EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"available_target_types\": [\"java_library\"],\n" +
+    "  \"libraries\": {\"junit:junit:4.12\": {\"default\": \"/ivy/junit.jar\"}},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/a:a\": {\"targets\": [\"src/java/common:common\"], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"src/java/b:b\": {\"targets\": [\"src/java/common:common\"], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"src/java/c:c\": {\"targets\": [], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"src/java/common:common\": {\"targets\": [\"3rdparty:junit\"], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"3rdparty:junit\": {\"libraries\": [\"junit:junit:4.12\"], \"pants_target_type\": \"jar_library\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  public void testSameProject() throws IOException {
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), parse());
+    assertTrue(diff.isEmpty());
+    assertTrue(diff.getAffectedTargets().isEmpty());
+  }
+
+  public void testChangedTarget() throws IOException {
+    final ProjectInfo after = parse();
+    after.getTarget("src/java/common:common").setRoots(Collections.singleton(new ContentRoot("src/java/common", "")));
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), after);
+    assertFalse(diff.isEmpty());
+    assertFalse(diff.isProjectChanged());
+    assertEquals(Collections.singleton("src/java/common:common"), diff.getChangedTargets());
+    assertEquals(Sets.newHashSet("src/java/common:common", "src/java/a:a", "src/java/b:b"), diff.getAffectedTargets());
+  }
+
+  public void testAddedAndRemovedTargets() throws IOException {
+    final ProjectInfo after = parse();
+    after.removeTarget("src/java/common:common");
+    after.addTarget("src/java/d:d", new TargetInfo());
+    after.addDependency("src/java/c:c", "src/java/d:d");
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), after);
+    assertEquals(Collections.singleton("src/java/d:d"), diff.getAddedTargets());
+    assertEquals(Collections.singleton("src/java/common:common"), diff.getRemovedTargets());
+    // Removing the target also removed the dependencies on it.
+    assertEquals(Sets.newHashSet("src/java/a:a", "src/java/b:b", "src/java/c:c"), diff.getChangedTargets());
+    assertEquals(Sets.newHashSet("src/java/a:a", "src/java/b:b", "src/java/c:c", "src/java/d:d"), diff.getAffectedTargets());
+  }
+
+  public void testChangedLibrary() throws IOException {
+    final ProjectInfo after = parse();
+    after.addLibrary("junit:junit:4.12", new LibraryInfo("/ivy/junit-4.12.jar"));
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), after);
+    assertEquals(Collections.singleton("junit:junit:4.12"), diff.getChangedLibraries());
+    assertEquals(Collections.singleton("3rdparty:junit"), diff.getChangedTargets());
+    assertEquals(Sets.newHashSet("3rdparty:junit", "src/java/common:common"), diff.getAffectedTargets());
+  }
+
+  public void testChangedAddressInfo() throws IOException {
+    final ProjectInfo after = parse();
+    after.getTarget("src/java/c:c").getAddressInfos().forEach(info -> info.setIsTargetRoot(true));
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), after);
+    assertEquals(Collections.singleton("src/java/c:c"), diff.getChangedTargets());
+    assertEquals(Collections.singleton("src/java/c:c"), diff.getAffectedTargets());
+  }
+
+  public void testChangedProject() throws IOException {
+    final ProjectInfo after = ProjectInfoStreamingParser.parse(new StringReader(EXPORT.replace("1.0.9", "1.1.0")));
+    final ProjectInfoDiff diff = ProjectInfoDiff.compute(parse(), after);
+    assertTrue(diff.isProjectChanged());
+    assertTrue(diff.getChangedTargets().isEmpty());
+  }
+
+  @NotNull
+  private static ProjectInfo parse() throws IOException {
+    return ProjectInfoStreamingParser.parse(new StringReader(EXPORT));
+  }
+}
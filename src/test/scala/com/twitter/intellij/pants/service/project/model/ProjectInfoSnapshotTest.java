@@ -0,0 +1,157 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.common.collect.Sets;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+public class ProjectInfoSnapshotTest extends TestCase {
+
+  private static final String EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"available_target_types\": [\"java_library\", \"scala_library\"],\n" +
+    "  \"libraries\": {\n" +
+    "    \"org.scala-lang:scala-library:2.12.8\": {\"default\": \"/ivy/scala-library.jar\", \"sources\": \"/ivy/scala-library-sources.jar\"},\n" +
+    "    \"junit:junit:4.12\": {\"default\": \"/ivy/junit.jar\"},\n" +
+    "    \"missing:missing:1.0\": null\n" +
+    "  },\n" +
+    "  \"python_setup\": {\n" +
+    "    \"default_interpreter\": \"CPython-2.7\",\n" +
+    "    \"interpreters\": {\"CPython-2.7\": {\"binary\": \"/usr/bin/python\", \"chroot\": \"/chroot\"}}\n" +
+    "  },\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/a:a\": {\n" +
+    "      \"targets\": [\"src/java/b:b\", \"3rdparty:junit\"],\n" +
+    "      \"roots\": [{\"source_root\": \"/repo/src/java/a\", \"package_prefix\": \"a\"}, {\"source_root\": \"/repo/src/resources/a\"}],\n" +
+    "      \"target_type\": \"SOURCE\",\n" +
+    "      \"pants_target_type\": \"java_library\",\n" +
+    "      \"is_target_root\": true,\n" +
+    "      \"id\": \"src.java.a.a\",\n" +
+    "      \"globs\": {\"globs\": [\"src/java/a/*.java\"]}\n" +
+    "    },\n" +
+    "    \"src/java/b:b\": {\"targets\": [], \"target_type\": \"TEST\", \"pants_target_type\": \"junit_tests\", \"is_synthetic\": true},\n" +
+    "    \"3rdparty:junit\": {\"libraries\": [\"junit:junit:4.12\"], \"excludes\": [\"org.hamcrest\"], \"pants_target_type\": \"jar_library\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  public void testRoundTrip() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(EXPORT));
+    assertEquivalent(projectInfo, roundTrip(projectInfo));
+  }
+
+  public void testRoundTripOfEmptyProject() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader("{}"));
+    final ProjectInfo copy = roundTrip(projectInfo);
+    assertTrue(copy.getTargets().isEmpty());
+    assertTrue(copy.getLibraries().isEmpty());
+    assertNull(copy.getPythonSetup());
+  }
+
+  public void testRejectsOtherVersions() throws Exception {
+    final byte[] snapshot = write(ProjectInfoStreamingParser.parse(new StringReader(EXPORT)));
+    snapshot[4] = (byte)(ProjectInfoSnapshotWriter.FORMAT_VERSION + 1);
+    assertUnreadable(snapshot);
+    assertUnreadable(Arrays.copyOf(snapshot, snapshot.length / 2));
+    assertUnreadable(EXPORT.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void testSmallerThanJson() throws Exception {
+    final String json = generateExport(10_000);
+    final ProjectInfo projectInfo = ProjectInfo.fromJson(json);
+    final byte[] snapshot = write(projectInfo);
+    final int jsonSize = json.getBytes(StandardCharsets.UTF_8).length;
+    assertTrue(
+      String.format("Snapshot of %d bytes should be at most half the %d bytes of json", snapshot.length, jsonSize),
+      snapshot.length * 2 < jsonSize
+    );
+
+    final ProjectInfo copy = ProjectInfoSnapshotReader.read(new ByteArrayInputStream(snapshot));
+    assertEquals(projectInfo.getTargets().size(), copy.getTargets().size());
+  }
+
+  @NotNull
+  private static String generateExport(int targets) {
+    final StringBuilder builder = new StringBuilder("{\"version\": \"1.0.9\", \"libraries\": {");
+    for (int i = 0; i < targets / 10; i++) {
+      builder.append(i > 0 ? "," : "")
+        .append("\"org.example:lib").append(i).append(":1.0\": {\"default\": \"/home/user/.ivy2/pants/org.example/lib")
+        .append(i).append("/jars/lib").append(i).append("-1.0.jar\"}");
+    }
+    builder.append("}, \"targets\": {");
+    for (int i = 0; i < targets; i++) {
+      final String address = "src/java/org/example/module" + i + ":lib";
+      builder.append(i > 0 ? "," : "").append('"').append(address).append("\": {\"targets\": [");
+      for (int dependency = Math.max(0, i - 5); dependency < i; dependency++) {
+        builder.append(dependency > Math.max(0, i - 5) ? "," : "")
+          .append("\"src/java/org/example/module").append(dependency).append(":lib\"");
+      }
+      builder.append("], \"libraries\": [\"org.example:lib").append(i / 10).append(":1.0\"], ")
+        .append("\"roots\": [{\"source_root\": \"/home/user/workspace/repo/src/java/org/example/module").append(i)
+        .append("\", \"package_prefix\": \"org.example.module").append(i).append("\"}], ")
+        .append("\"target_type\": \"SOURCE\", \"pants_target_type\": \"java_library\", \"is_target_root\": true, ")
+        .append("\"globs\": {\"globs\": [\"src/java/org/example/module").append(i).append("/*.java\"]}}");
+    }
+    return builder.append("}}").toString();
+  }
+
+  @NotNull
+  private static byte[] write(@NotNull ProjectInfo projectInfo) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ProjectInfoSnapshotWriter.write(projectInfo, output);
+    return output.toByteArray();
+  }
+
+  @NotNull
+  private static ProjectInfo roundTrip(@NotNull ProjectInfo projectInfo) throws IOException {
+    return ProjectInfoSnapshotReader.read(new ByteArrayInputStream(write(projectInfo)));
+  }
+
+  private static void assertUnreadable(@NotNull byte[] snapshot) {
+    try {
+      ProjectInfoSnapshotReader.read(new ByteArrayInputStream(snapshot));
+      fail("Should not be readable");
+    }
+    catch (IOException ignored) {
+    }
+  }
+
+  private static void assertEquivalent(@NotNull ProjectInfo expected, @NotNull ProjectInfo actual) {
+    assertEquals(expected.getVersion(), actual.getVersion());
+    assertEquals(Arrays.asList(expected.getAvailableTargetTypes()), Arrays.asList(actual.getAvailableTargetTypes()));
+    assertEquals(expected.getLibraries(), actual.getLibraries());
+    assertEquals(expected.getPythonSetup().getDefaultInterpreter(), actual.getPythonSetup().getDefaultInterpreter());
+    assertEquals(expected.getPythonSetup().getInterpreters(), actual.getPythonSetup().getInterpreters());
+    assertEquals(expected.getTargets().keySet(), actual.getTargets().keySet());
+    for (Map.Entry<String, TargetInfo> entry : expected.getTargets().entrySet()) {
+      final TargetInfo expectedInfo = entry.getValue();
+      final TargetInfo actualInfo = actual.getTarget(entry.getKey());
+      assertEquals(expectedInfo.getTargets(), actualInfo.getTargets());
+      assertEquals(expectedInfo.getLibraries(), actualInfo.getLibraries());
+      assertEquals(expectedInfo.getExcludes(), actualInfo.getExcludes());
+      assertEquals(expectedInfo.getRoots(), actualInfo.getRoots());
+      assertEquals(Sets.newHashSet(expectedInfo.getRoots()).size(), actualInfo.getRoots().size());
+      assertEquals(1, actualInfo.getAddressInfos().size());
+      final TargetAddressInfo expectedAddress = expectedInfo.getAddressInfos().iterator().next();
+      final TargetAddressInfo actualAddress = actualInfo.getAddressInfos().iterator().next();
+      assertEquals(expectedAddress.getTargetAddress(), actualAddress.getTargetAddress());
+      assertEquals(expectedAddress.getTargetType(), actualAddress.getTargetType());
+      assertEquals(expectedAddress.getInternalPantsTargetType(), actualAddress.getInternalPantsTargetType());
+      assertEquals(expectedAddress.isSynthetic(), actualAddress.isSynthetic());
+      assertEquals(expectedAddress.isTargetRoot(), actualAddress.isTargetRoot());
+      assertEquals(expectedAddress.getId(), actualAddress.getId());
+      assertEquals(expectedAddress.getGlobs().getGlobs(), actualAddress.getGlobs().getGlobs());
+    }
+  }
+}
@@ -0,0 +1,226 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.common.collect.Sets;
+import com.twitter.intellij.pants.model.TargetAddressInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+public class ProjectInfoStreamingParserTest extends TestCase {
+
+  private static final String EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"available_target_types\": [\"java_library\", \"scala_library\"],\n" +
+    "  \"jvm_platforms\": {\"default_platform\": \"java8\", \"platforms\": {\"java8\": {\"args\": [], \"source_level\": \"1.8\"}}},\n" +
+    "  \"libraries\": {\n" +
+    "    \"org.scala-lang:scala-library:2.12.8\": {\"default\": \"/ivy/scala-library.jar\", \"sources\": \"/ivy/scala-library-sources.jar\"},\n" +
+    "    \"junit:junit:4.12\": {\"default\": \"/ivy/junit.jar\"}\n" +
+    "  },\n" +
+    "  \"python_setup\": {\n" +
+    "    \"default_interpreter\": \"CPython-2.7\",\n" +
+    "    \"interpreters\": {\"CPython-2.7\": {\"binary\": \"/usr/bin/python\", \"chroot\": \"/chroot\"}}\n" +
+    "  },\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/a:a\": {\n" +
+    "      \"targets\": [\"src/java/b:b\", \"3rdparty:junit\"],\n" +
+    "      \"libraries\": [],\n" +
+    "      \"excludes\": [],\n" +
+    "      \"roots\": [{\"source_root\": \"/repo/src/java/a\", \"package_prefix\": \"a\"}],\n" +
+    "      \"target_type\": \"SOURCE\",\n" +
+    "      \"pants_target_type\": \"java_library\",\n" +
+    "      \"is_synthetic\": false,\n" +
+    "      \"is_target_root\": true,\n" +
+    "      \"id\": \"src.java.a.a\",\n" +
+    "      \"globs\": {\"globs\": [\"src/java/a/*.java\"]},\n" +
+    "      \"zinc_args\": [\"-C-encoding\", \"-CUTF-8\"],\n" +
+    "      \"platform\": \"java8\"\n" +
+    "    },\n" +
+    "    \"src/java/b:b\": {\n" +
+    "      \"targets\": [],\n" +
+    "      \"roots\": [],\n" +
+    "      \"target_type\": \"SOURCE\",\n" +
+    "      \"pants_target_type\": \"java_library\",\n" +
+    "      \"is_synthetic\": true,\n" +
+    "      \"is_target_root\": false\n" +
+    "    },\n" +
+    "    \"3rdparty:junit\": {\n" +
+    "      \"targets\": [],\n" +
+    "      \"libraries\": [\"junit:junit:4.12\"],\n" +
+    "      \"excludes\": [\"org.hamcrest\"],\n" +
+    "      \"roots\": [],\n" +
+    "      \"pants_target_type\": \"jar_library\",\n" +
+    "      \"is_target_root\": false\n" +
+    "    }\n" +
+    "  }\n" +
+    "}\n";
+
+  public void testSameResultAsGson() throws Exception {
+    assertEquivalent(ProjectInfo.fromJson(EXPORT), ProjectInfoStreamingParser.parse(new StringReader(EXPORT)));
+  }
+
+  public void testSkipsLogLinesBeforeJson() throws Exception {
+    final File exportFile = File.createTempFile("pants_export", ".out");
+    try {
+      Files.write(exportFile.toPath(), ("12:00:00 00:01 [export]\n  Resolving\n" + EXPORT).getBytes(StandardCharsets.UTF_8));
+      assertEquivalent(ProjectInfo.fromJson(EXPORT), ProjectInfoStreamingParser.parse(exportFile));
+    }
+    finally {
+      Files.deleteIfExists(exportFile.toPath());
+    }
+  }
+
+  public void testDependencyAddressesAreShared() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(EXPORT));
+    final String dependency = projectInfo.getTarget("src/java/a:a").getTargets().stream()
+      .filter("src/java/b:b"::equals)
+      .findFirst()
+      .get();
+    final String key = projectInfo.getTargets().keySet().stream()
+      .filter("src/java/b:b"::equals)
+      .findFirst()
+      .get();
+    assertSame(key, dependency);
+  }
+
+  /**
+   * Feeds the parser with an export that is mostly made of fields the plugin ignores, generated on the fly,
+   * and checks that it is read in bounded chunks and that only the fields the plugin uses end up in the model.
+   */
+  public void testLargeExportIsStreamed() throws Exception {
+    final int targets = 200;
+    final int paddingPerTarget = 32 * 1024;
+    final GeneratingReader reader = new GeneratingReader(targets, paddingPerTarget);
+
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(reader);
+
+    assertEquals(targets, projectInfo.getTargets().size());
+    assertEquals(Collections.singleton("src/t41:t"), projectInfo.getTarget("src/t42:t").getTargets());
+    assertTrue(reader.getCharsServed() > (long)targets * paddingPerTarget);
+    assertTrue(
+      String.format("The parser asked for %d chars at once", reader.getLargestRead()),
+      reader.getLargestRead() < paddingPerTarget
+    );
+  }
+
+  private static void assertEquivalent(@NotNull ProjectInfo expected, @NotNull ProjectInfo actual) {
+    assertEquals(expected.getVersion(), actual.getVersion());
+    assertEquals(Sets.newHashSet(expected.getAvailableTargetTypes()), Sets.newHashSet(actual.getAvailableTargetTypes()));
+    assertEquals(expected.getLibraries(), actual.getLibraries());
+    assertEquals(expected.getPythonSetup().getDefaultInterpreterInfo(), actual.getPythonSetup().getDefaultInterpreterInfo());
+    assertEquals(expected.getTargets().keySet(), actual.getTargets().keySet());
+    for (Map.Entry<String, TargetInfo> entry : expected.getTargets().entrySet()) {
+      final TargetInfo expectedInfo = entry.getValue();
+      final TargetInfo actualInfo = actual.getTarget(entry.getKey());
+      assertEquals(expectedInfo.getTargets(), actualInfo.getTargets());
+      assertEquals(expectedInfo.getLibraries(), actualInfo.getLibraries());
+      assertEquals(expectedInfo.getExcludes(), actualInfo.getExcludes());
+      assertEquals(expectedInfo.getRoots(), actualInfo.getRoots());
+      assertEquals(1, actualInfo.getAddressInfos().size());
+      final TargetAddressInfo expectedAddress = expectedInfo.getAddressInfos().iterator().next();
+      final TargetAddressInfo actualAddress = actualInfo.getAddressInfos().iterator().next();
+      assertEquals(expectedAddress.getTargetAddress(), actualAddress.getTargetAddress());
+      assertEquals(expectedAddress.getTargetType(), actualAddress.getTargetType());
+      assertEquals(expectedAddress.getInternalPantsTargetType(), actualAddress.getInternalPantsTargetType());
+      assertEquals(expectedAddress.isSynthetic(), actualAddress.isSynthetic());
+      assertEquals(expectedAddress.isTargetRoot(), actualAddress.isTargetRoot());
+      assertEquals(expectedAddress.getId(), actualAddress.getId());
+      assertEquals(expectedAddress.getGlobs().getGlobs(), actualAddress.getGlobs().getGlobs());
+    }
+  }
+
+  /**
+   * Generates an export on the fly, without ever holding it, and records the largest read asked for.
+   */
+  private static class GeneratingReader extends Reader {
+    private final int myTargets;
+    private final int myPadding;
+
+    private int myTarget = -1;
+    private String myChunk = "{\"version\": \"1.0.9\", \"targets\": {";
+    private int myChunkOffset = 0;
+    private int myPaddingLeft = 0;
+    private boolean myDone = false;
+    private long myServed = 0;
+    private int myLargestRead = 0;
+
+    GeneratingReader(int targets, int padding) {
+      myTargets = targets;
+      myPadding = padding;
+    }
+
+    @Override
+    public int read(@NotNull char[] buffer, int offset, int length) throws IOException {
+      myLargestRead = Math.max(myLargestRead, length);
+      int written = 0;
+      while (written < length) {
+        if (myChunkOffset < myChunk.length()) {
+          final int n = Math.min(length - written, myChunk.length() - myChunkOffset);
+          myChunk.getChars(myChunkOffset, myChunkOffset + n, buffer, offset + written);
+          myChunkOffset += n;
+          written += n;
+        }
+        else if (myPaddingLeft > 0) {
+          final int n = Math.min(length - written, myPaddingLeft);
+          for (int i = 0; i < n; i++) {
+            buffer[offset + written + i] = 'x';
+          }
+          myPaddingLeft -= n;
+          written += n;
+        }
+        else if (!nextChunk()) {
+          break;
+        }
+      }
+      myServed += written;
+      return written == 0 ? -1 : written;
+    }
+
+    private boolean nextChunk() {
+      myChunkOffset = 0;
+      if (myDone) {
+        return false;
+      }
+      myTarget++;
+      if (myTarget == myTargets * 2) {
+        myChunk = "}}";
+        myDone = true;
+      }
+      else if (myTarget % 2 == 0) {
+        // Target header followed by an ignored field that is mostly padding.
+        final int index = myTarget / 2;
+        myChunk = (index > 0 ? "," : "") +
+                  "\"src/t" + index + ":t\": {\"targets\": [" + (index > 0 ? "\"src/t" + (index - 1) + ":t\"" : "") + "], " +
+                  "\"pants_target_type\": \"java_library\", \"zinc_args\": \"";
+        myPaddingLeft = myPadding;
+      }
+      else {
+        myChunk = "\"}";
+      }
+      return true;
+    }
+
+    long getCharsServed() {
+      return myServed;
+    }
+
+    int getLargestRead() {
+      return myLargestRead;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,192 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.model;
+
+import com.google.common.collect.Sets;
+import junit.framework.TestCase;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class ProjectInfoTest extends TestCase {
+
+  private static final String SHARD_A =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"available_target_types\": [\"java_library\"],\n" +
+    "  \"libraries\": {\"junit:junit:4.12\": {\"default\": \"/ivy/junit.jar\"}},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/java/a:a\": {\"targets\": [\"src/java/common:common\"], \"pants_target_type\": \"java_library\", \"is_target_root\": true},\n" +
+    "    \"src/java/common:common\": {\"targets\": [\"3rdparty:junit\"], \"pants_target_type\": \"java_library\", \"is_target_root\": false},\n" +
+    "    \"3rdparty:junit\": {\"libraries\": [\"junit:junit:4.12\"], \"pants_target_type\": \"jar_library\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  private static final String SHARD_B =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"available_target_types\": [\"java_library\", \"scala_library\"],\n" +
+    "  \"libraries\": {\"junit:junit:4.12\": {\"default\": \"/ivy/junit.jar\"}, \"org.scala-lang:scala-library:2.12.8\": {\"default\": \"/ivy/scala.jar\"}},\n" +
+    "  \"targets\": {\n" +
+    "    \"src/scala/b:b\": {\"targets\": [\"src/java/common:common\"], \"pants_target_type\": \"scala_library\", \"is_target_root\": true},\n" +
+    "    \"src/java/common:common\": {\"targets\": [\"3rdparty:junit\"], \"pants_target_type\": \"java_library\", \"is_target_root\": true},\n" +
+    "    \"3rdparty:junit\": {\"libraries\": [\"junit:junit:4.12\"], \"pants_target_type\": \"jar_library\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  public void testRemoveTarget() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(SHARD_A));
+    projectInfo.removeTarget("src/java/common:common");
+    assertNull(projectInfo.getTarget("src/java/common:common"));
+    assertTrue(projectInfo.getTarget("src/java/a:a").getTargets().isEmpty());
+
+    projectInfo.addTarget("src/java/c:c", new TargetInfo());
+    projectInfo.addDependency("src/java/c:c", "3rdparty:junit");
+    projectInfo.removeTarget("3rdparty:junit");
+    assertTrue(projectInfo.getTarget("src/java/c:c").getTargets().isEmpty());
+  }
+
+  public void testSortedTargetsFollowChanges() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(SHARD_A));
+    final List<Map.Entry<String, TargetInfo>> sorted = projectInfo.getSortedTargets();
+    assertEquals(Arrays.asList("3rdparty:junit", "src/java/a:a", "src/java/common:common"), getKeys(sorted));
+    assertSame(sorted, projectInfo.getSortedTargets());
+
+    projectInfo.addTarget("src/java/x10:x", new TargetInfo());
+    projectInfo.addTarget("src/java/x9:x", new TargetInfo());
+    assertEquals(
+      Arrays.asList("3rdparty:junit", "src/java/a:a", "src/java/common:common", "src/java/x9:x", "src/java/x10:x"),
+      getKeys(projectInfo.getSortedTargets())
+    );
+    projectInfo.renameTarget("src/java/common:common", "common");
+    projectInfo.removeTarget("3rdparty:junit");
+    assertEquals(Arrays.asList("common", "src/java/a:a", "src/java/x9:x", "src/java/x10:x"), getKeys(projectInfo.getSortedTargets()));
+
+    projectInfo.merge(ProjectInfoStreamingParser.parse(new StringReader(SHARD_B)));
+    assertEquals(
+      Arrays.asList("junit:junit:4.12", "org.scala-lang:scala-library:2.12.8"),
+      getKeys(projectInfo.getSortedLibraries())
+    );
+    assertEquals(7, projectInfo.getSortedTargets().size());
+  }
+
+  private static <T> List<String> getKeys(List<Map.Entry<String, T>> entries) {
+    return entries.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+  }
+
+  public void testLibraryVersionFallback() {
+    final ProjectInfo projectInfo = new ProjectInfo();
+    projectInfo.setTargets(new HashMap<>());
+    projectInfo.setLibraries(new HashMap<>());
+    projectInfo.addLibrary("junit:junit:4.9", new LibraryInfo("/ivy/junit-4.9.jar"));
+    projectInfo.addLibrary("junit:junit:4.10", new LibraryInfo("/ivy/junit-4.10.jar"));
+    projectInfo.addLibrary("junit:junit-dep:4.11", new LibraryInfo("/ivy/junit-dep-4.11.jar"));
+    projectInfo.addLibrary("junit:junit:4.13", null);
+
+    assertEquals("/ivy/junit-4.9.jar", projectInfo.getLibraries("junit:junit:4.9").getDefault());
+    assertEquals("/ivy/junit-4.10.jar", projectInfo.getLibraries("junit:junit:4.13").getDefault());
+    assertEquals("/ivy/junit-4.10.jar", projectInfo.getLibraries("junit:junit:4.12").getDefault());
+    assertNull(projectInfo.getLibraries("org.hamcrest:hamcrest-core:1.3"));
+    assertNull(projectInfo.getLibraries("junit"));
+
+    projectInfo.addLibrary("junit:junit:4.12", new LibraryInfo("/ivy/junit-4.12.jar"));
+    assertEquals("/ivy/junit-4.12.jar", projectInfo.getLibraries("junit:junit:4.13").getDefault());
+  }
+
+  public void testRenameTarget() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(SHARD_A));
+    projectInfo.merge(ProjectInfoStreamingParser.parse(new StringReader(SHARD_B)));
+    projectInfo.renameTarget("src/java/common:common", "common");
+    assertNull(projectInfo.getTarget("src/java/common:common"));
+    assertEquals(Sets.newHashSet("3rdparty:junit"), projectInfo.getTarget("common").getTargets());
+    assertEquals(Sets.newHashSet("common"), projectInfo.getTarget("src/java/a:a").getTargets());
+    assertEquals(Sets.newHashSet("common"), projectInfo.getTarget("src/scala/b:b").getTargets());
+
+    // The renamed target keeps being indexed under its new name.
+    projectInfo.removeTarget("common");
+    assertTrue(projectInfo.getTarget("src/java/a:a").getTargets().isEmpty());
+    assertTrue(projectInfo.getTarget("src/scala/b:b").getTargets().isEmpty());
+  }
+
+  public void testReplaceDependencyOfReplacedTarget() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(SHARD_A));
+    projectInfo.replaceDependency("3rdparty:junit", "3rdparty:junit4");
+    // The replaced target does not depend on anything any more, so it is not a dependee of junit4.
+    projectInfo.addTarget("src/java/common:common", new TargetInfo());
+    projectInfo.replaceDependency("3rdparty:junit4", "3rdparty:junit5");
+    assertTrue(projectInfo.getTarget("src/java/common:common").getTargets().isEmpty());
+  }
+
+  /**
+   * Removing targets used to scan the dependencies of every target, i.e. it was quadratic when the modifiers
+   * removed many of them. Counts how often the dependencies of a target are looked at instead of timing it.
+   */
+  public void testRemovingManyTargetsIsLinear() {
+    final int targetsCount = 10_000;
+    final AtomicInteger lookups = new AtomicInteger();
+    final ProjectInfo projectInfo = new ProjectInfo();
+    projectInfo.setTargets(new HashMap<>());
+    projectInfo.setLibraries(new HashMap<>());
+    final List<String> removed = new ArrayList<>();
+    for (int i = 0; i < targetsCount; i++) {
+      final Set<String> dependencies = new HashSet<>();
+      for (int dependency = Math.max(0, i - 5); dependency < i; dependency++) {
+        dependencies.add("target" + dependency);
+      }
+      final TargetInfo info =
+        new TargetInfo(Collections.emptySet(), dependencies, Collections.emptySet(), Collections.emptySet(), Collections.emptySet()) {
+          @Override
+          public Set<String> getTargets() {
+            lookups.incrementAndGet();
+            return super.getTargets();
+          }
+        };
+      projectInfo.addTarget("target" + i, info);
+      if (i % 2 == 0) {
+        removed.add("target" + i);
+      }
+    }
+
+    lookups.set(0);
+    projectInfo.removeTargets(removed);
+    projectInfo.renameTarget("target1", "renamed");
+
+    assertEquals(targetsCount / 2, projectInfo.getTargets().size());
+    assertEquals(Sets.newHashSet("renamed", "target3"), projectInfo.getTarget("target5").getTargets());
+    assertTrue(
+      "Removing half of " + targetsCount + " targets looked at dependencies " + lookups.get() + " times",
+      lookups.get() < 10 * targetsCount
+    );
+  }
+
+  public void testMergeDeduplicatesTargetsAndLibraries() throws Exception {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(SHARD_A));
+    projectInfo.merge(ProjectInfoStreamingParser.parse(new StringReader(SHARD_B)));
+
+    assertEquals(
+      Sets.newHashSet("src/java/a:a", "src/scala/b:b", "src/java/common:common", "3rdparty:junit"),
+      projectInfo.getTargets().keySet()
+    );
+    assertEquals(
+      Sets.newHashSet("junit:junit:4.12", "org.scala-lang:scala-library:2.12.8"),
+      projectInfo.getLibraries().keySet()
+    );
+    assertEquals(Sets.newHashSet("java_library", "scala_library"), Sets.newHashSet(projectInfo.getAvailableTargetTypes()));
+    assertEquals(2, projectInfo.getAvailableTargetTypes().length);
+
+    final TargetInfo common = projectInfo.getTarget("src/java/common:common");
+    assertNotNull(common);
+    assertEquals(1, common.getAddressInfos().size());
+    assertTrue("A target root in any shard is a target root", common.getAddressInfos().iterator().next().isTargetRoot());
+  }
+}
@@ -149,6 +149,60 @@ public class BuildGraphTest extends TestCase {
     assertEquals(4, new BuildGraph(targets).getNodesUpToLevel(1).size());
   }
 
+  public void testNodesCountByLevel() {
+    // a -> b -> c -> d
+    //      b -> e
+    injectTargetInfoWithInternalPantsTargetType(targets, "a", "source", "java_library", IS_TARGET_ROOT, Optional.empty());
+    injectTargetInfoWithInternalPantsTargetType(targets, "b", "source", "target", !IS_TARGET_ROOT, Optional.of("a"));
+    injectTargetInfoWithInternalPantsTargetType(targets, "c", "source", "java_library", !IS_TARGET_ROOT, Optional.of("b"));
+    injectTargetInfoWithInternalPantsTargetType(targets, "d", "source", "java_library", !IS_TARGET_ROOT, Optional.of("c"));
+    injectTargetInfoWithInternalPantsTargetType(targets, "e", "source", "java_library", !IS_TARGET_ROOT, Optional.of("b"));
+    BuildGraph graph = new BuildGraph(targets);
+    assertEquals(3, graph.getMaxDepth());
+    // 'b' is an alias, so 'c' and 'e' are at its level.
+    final Map<Integer, Integer> expected = new HashMap<>();
+    expected.put(0, 1);
+    expected.put(1, 3);
+    expected.put(2, 1);
+    assertEquals(expected, graph.getNodesCountByLevel());
+    for (int level = 0; level <= 2; level++) {
+      final int upToLevel = level;
+      assertTrue(graph.getNodesUpToLevel(level).stream().allMatch(node -> node.getLevel() <= upToLevel));
+    }
+    assertEquals(5, graph.getNodesUpToLevel(2).size());
+  }
+
+  public void testLargeGraph() {
+    // A binary tree of targets, i.e. target i depends on 2i + 1 and 2i + 2, with target 0 as the only root.
+    final int targetsCount = 100_000;
+    for (int i = 0; i < targetsCount; i++) {
+      final TargetInfo info = TargetInfoTest.createTargetInfoWithTargetAddressInfo("source");
+      info.getAddressInfos().forEach(s -> s.setIsTargetRoot(false));
+      for (int dependency = 2 * i + 1; dependency <= 2 * i + 2 && dependency < targetsCount; dependency++) {
+        info.addDependency("t" + dependency);
+      }
+      targets.put("t" + i, info);
+    }
+    targets.get("t0").getAddressInfos().forEach(s -> s.setIsTargetRoot(IS_TARGET_ROOT));
+
+    final BuildGraph graph = new BuildGraph(targets);
+    assertEquals(16, graph.getMaxDepth());
+    assertEquals(15, graph.getNodesUpToLevel(3).size());
+    assertEquals(targetsCount, graph.getNodesUpToLevel(16).size());
+    assertEquals(1 << 15, (int) graph.getNodesCountByLevel().get(15));
+  }
+
+  public void testDependees() {
+    injectTargetInfo(targets, "a", "source", IS_TARGET_ROOT, Optional.empty());
+    injectTargetInfo(targets, "b", "source", !IS_TARGET_ROOT, Optional.of("a"));
+    injectTargetInfo(targets, "c", "source", !IS_TARGET_ROOT, Optional.of("a"));
+    final Map<String, BuildGraphNode> nodes = new BuildGraph(targets).getNodesUpToLevel(1).stream()
+      .collect(Collectors.toMap(BuildGraphNode::getAddress, node -> node));
+    assertEquals(Sets.newHashSet(nodes.get("b"), nodes.get("c")), nodes.get("a").getDependencies());
+    assertEquals(Sets.newHashSet(nodes.get("a")), nodes.get("b").getDependees());
+    assertTrue(nodes.get("a").getDependees().isEmpty());
+  }
+
   private void injectTargetInfoWithInternalPantsTargetType(
     Map<String, TargetInfo> targets,
     String targetAddress,
@@ -0,0 +1,90 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.modifier;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.diagnostic.Logger;
+import com.twitter.intellij.pants.PantsException;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+public class PantsCyclicDependenciesModifierTest extends TestCase {
+  private static final Logger LOG = Logger.getInstance(PantsCyclicDependenciesModifierTest.class);
+
+  private ProjectInfo myProjectInfo;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProjectInfo = new ProjectInfo();
+    myProjectInfo.setTargets(new HashMap<>());
+    myProjectInfo.setLibraries(new HashMap<>());
+  }
+
+  public void testFindCycles() {
+    // a -> b -> c -> a is a cycle of three, which checking whether a dependency depends back does not find.
+    addTarget("a", "b");
+    addTarget("b", "c");
+    addTarget("c", "a", "d");
+    addTarget("d", "e");
+    addTarget("e", "d", "3rdparty:missing");
+    addTarget("f", "a");
+
+    final List<List<String>> cycles = PantsCyclicDependenciesModifier.findCycles(myProjectInfo.getTargets());
+    assertEquals(Sets.newHashSet(Arrays.asList("a", "b", "c"), Arrays.asList("d", "e")), Sets.newHashSet(cycles));
+  }
+
+  public void testCombineCycles() {
+    addTarget("src/a", "src/b");
+    addTarget("src/b", "src/c", "3rdparty:junit");
+    addTarget("src/c", "src/a");
+    addTarget("3rdparty:junit");
+    addTarget("tests/a", "src/b");
+
+    PantsCyclicDependenciesModifier.combineCycles(myProjectInfo, LOG);
+
+    final String combined = "src/a_and_b_and_c";
+    assertEquals(Sets.newHashSet(combined, "3rdparty:junit", "tests/a"), myProjectInfo.getTargets().keySet());
+    assertEquals(Collections.singleton("3rdparty:junit"), myProjectInfo.getTarget(combined).getTargets());
+    assertEquals(Collections.singleton(combined), myProjectInfo.getTarget("tests/a").getTargets());
+  }
+
+  public void testSelfCycle() {
+    addTarget("a", "a");
+    try {
+      PantsCyclicDependenciesModifier.combineCycles(myProjectInfo, LOG);
+      fail("A target depending on itself should be rejected");
+    }
+    catch (PantsException ignored) {
+    }
+  }
+
+  public void testDeepChainDoesNotOverflow() {
+    final int depth = 100_000;
+    for (int i = 0; i < depth; i++) {
+      addTarget("target" + i, "target" + (i + 1));
+    }
+    addTarget("target" + depth, "target0");
+
+    final List<List<String>> cycles = PantsCyclicDependenciesModifier.findCycles(myProjectInfo.getTargets());
+    assertEquals(1, cycles.size());
+    assertEquals(depth + 1, cycles.get(0).size());
+  }
+
+  private void addTarget(@NotNull String targetName, @NotNull String... dependencies) {
+    final Set<String> targets = Sets.newHashSet(dependencies);
+    myProjectInfo.addTarget(
+      targetName,
+      new TargetInfo(Collections.emptySet(), targets, Collections.emptySet(), Collections.emptySet(), Collections.emptySet())
+    );
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.modifier;
+
+import com.google.common.collect.Sets;
+import com.twitter.intellij.pants.service.project.model.ContentRoot;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+public class PantsEmptyTargetRemoverTest extends TestCase {
+  private ProjectInfo myProjectInfo;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProjectInfo = new ProjectInfo();
+    myProjectInfo.setTargets(new HashMap<>());
+    myProjectInfo.setLibraries(new HashMap<>());
+  }
+
+  public void testRemoveAliasChain() {
+    addTarget("src:lib", Collections.singleton(new ContentRoot("src", "")), "alias0");
+    addTarget("alias0", Collections.emptySet(), "alias1");
+    addTarget("alias1", Collections.emptySet(), "alias2");
+    addTarget("alias2", Collections.emptySet());
+    addTarget("tests:lib", Collections.singleton(new ContentRoot("tests", "")), "src:lib");
+
+    PantsEmptyTargetRemover.removeEmptyTargets(myProjectInfo);
+
+    assertEquals(Sets.newHashSet("src:lib", "tests:lib"), myProjectInfo.getTargets().keySet());
+    assertTrue(myProjectInfo.getTarget("src:lib").getTargets().isEmpty());
+    assertEquals(Collections.singleton("src:lib"), myProjectInfo.getTarget("tests:lib").getTargets());
+  }
+
+  public void testDeepAliasChainsBenchmark() {
+    final int chains = 100;
+    final int depth = 1_000;
+    for (int i = 0; i < chains; i++) {
+      addTarget("src/" + i + ":lib", Collections.singleton(new ContentRoot("src/" + i, "")), "alias" + i + "_0");
+      for (int j = 0; j < depth; j++) {
+        addTarget("alias" + i + "_" + j, Collections.emptySet(), "alias" + i + "_" + (j + 1));
+      }
+      addTarget("alias" + i + "_" + depth, Collections.emptySet());
+    }
+
+    PantsEmptyTargetRemover.removeEmptyTargets(myProjectInfo);
+
+    assertEquals(chains, myProjectInfo.getTargets().size());
+  }
+
+  private void addTarget(@NotNull String targetName, @NotNull Set<ContentRoot> roots, @NotNull String... dependencies) {
+    myProjectInfo.addTarget(
+      targetName,
+      new TargetInfo(Collections.emptySet(), Sets.newHashSet(dependencies), Collections.emptySet(), Collections.emptySet(), roots)
+    );
+  }
+}
@@ -4,9 +4,14 @@
 package com.twitter.intellij.pants.service.project.modifier;
 
 import com.google.common.collect.Sets;
+import com.intellij.openapi.util.io.FileUtil;
+import com.twitter.intellij.pants.service.project.model.ContentRoot;
 import junit.framework.TestCase;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
 
 public class PantsSourceRootCompressorTest extends TestCase {
   public void testFindAncestors1() {
@@ -31,4 +36,36 @@ public class PantsSourceRootCompressorTest extends TestCase {
       ))
     );
   }
+
+  public void testCompressRoots() throws IOException {
+    final File packageRoot = FileUtil.createTempDirectory("source_root_compressor", "");
+    try {
+      FileUtil.writeToFile(new File(packageRoot, "BUILD"), "");
+      FileUtil.writeToFile(new File(packageRoot, "com/foo/A.java"), "");
+      FileUtil.writeToFile(new File(packageRoot, "com/bar/baz/B.java"), "");
+      final Set<ContentRoot> roots = Sets.newHashSet(
+        new ContentRoot(packageRoot.getPath() + "/com/foo", "com.foo"),
+        new ContentRoot(packageRoot.getPath() + "/com/bar/baz", "com.bar.baz")
+      );
+      final PantsSourceRootCompressor.DirectoryScanCache scanCache = new PantsSourceRootCompressor.DirectoryScanCache();
+      final Set<ContentRoot> compressed = Collections.singleton(new ContentRoot(packageRoot.getPath() + "/", ""));
+      assertEquals(compressed, PantsSourceRootCompressor.compressRootsIfPossible(roots, scanCache));
+      // The package root is not scanned again.
+      FileUtil.writeToFile(new File(packageRoot, "com/C.java"), "");
+      assertEquals(compressed, PantsSourceRootCompressor.compressRootsIfPossible(roots, scanCache));
+
+      assertEquals(
+        roots,
+        PantsSourceRootCompressor.compressRootsIfPossible(roots, new PantsSourceRootCompressor.DirectoryScanCache())
+      );
+    }
+    finally {
+      FileUtil.delete(packageRoot);
+    }
+  }
+
+  public void testDoNotCompressMissingPackageRoot() {
+    final Set<ContentRoot> roots = Collections.singleton(new ContentRoot("/does/not/exist/com/foo", "com.foo"));
+    assertEquals(roots, PantsSourceRootCompressor.compressRootsIfPossible(roots, new PantsSourceRootCompressor.DirectoryScanCache()));
+  }
 }
@@ -0,0 +1,109 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.resolver;
+
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.ProjectKeys;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ModuleDependencyData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.module.ModuleTypeId;
+import com.twitter.intellij.pants.service.PantsCompileOptionsExecutor;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.TargetInfo;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class PantsModuleDependenciesExtensionTest extends TestCase {
+  private ProjectInfo myProjectInfo;
+  private DataNode<ProjectData> myProjectNode;
+  private Map<String, DataNode<ModuleData>> myModules;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProjectInfo = new ProjectInfo();
+    myProjectInfo.setTargets(new HashMap<>());
+    myProjectInfo.setLibraries(new HashMap<>());
+    myProjectNode = new DataNode<>(
+      ProjectKeys.PROJECT,
+      new ProjectData(PantsConstants.SYSTEM_ID, "test-project", "path/to/fake/project", "path/to/fake/project/BUILD"),
+      null
+    );
+    myModules = new HashMap<>();
+  }
+
+  public void testReverseEdgeIsSkipped() {
+    addModule("a", "b");
+    addModule("b", "a", "c");
+    addModule("c");
+    resolve();
+
+    assertDependencies("a", "b");
+    // 'a' already depends on 'b'.
+    assertDependencies("b", "c");
+    assertDependencies("c");
+  }
+
+  public void testDuplicateEdgeIsSkipped() {
+    addModule("a", "c");
+    addModule("b", "c");
+    addModule("c");
+    // Both targets share the module of 'a'.
+    myModules.put("b", myModules.get("a"));
+    resolve();
+
+    assertDependencies("a", "c");
+  }
+
+  public void testDenseGraph() {
+    // Every module depends on all the modules before it.
+    final int modulesCount = 1_000;
+    for (int i = 0; i < modulesCount; i++) {
+      final String[] dependencies = new String[i];
+      for (int j = 0; j < i; j++) {
+        dependencies[j] = "m" + j;
+      }
+      addModule("m" + i, dependencies);
+    }
+
+    resolve();
+
+    assertEquals(modulesCount - 1, PantsUtil.findChildren(myModules.get("m" + (modulesCount - 1)), ProjectKeys.MODULE_DEPENDENCY).size());
+  }
+
+  private void resolve() {
+    new PantsModuleDependenciesExtension().resolve(
+      myProjectInfo, PantsCompileOptionsExecutor.createMock(), myProjectNode, myModules, Optional.empty()
+    );
+  }
+
+  private void addModule(@NotNull String targetName, @NotNull String... dependencies) {
+    final TargetInfo targetInfo = new TargetInfo();
+    myProjectInfo.addTarget(targetName, targetInfo);
+    for (String dependency : dependencies) {
+      myProjectInfo.addDependency(targetName, dependency);
+    }
+    final ModuleData moduleData = new ModuleData(
+      targetName, PantsConstants.SYSTEM_ID, ModuleTypeId.JAVA_MODULE, targetName, "path/to/fake/project/" + targetName, targetName
+    );
+    myModules.put(targetName, myProjectNode.createChild(ProjectKeys.MODULE, moduleData));
+  }
+
+  private void assertDependencies(@NotNull String targetName, @NotNull String... expected) {
+    final List<ModuleDependencyData> dependencies =
+      PantsUtil.findChildren(myModules.get(targetName), ProjectKeys.MODULE_DEPENDENCY);
+    assertEquals(expected.length, dependencies.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], dependencies.get(i).getTarget().getExternalName());
+    }
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.service.project.wave;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.externalSystem.model.DataNode;
+import com.intellij.openapi.externalSystem.model.ProjectKeys;
+import com.intellij.openapi.externalSystem.model.project.ModuleData;
+import com.intellij.openapi.externalSystem.model.project.ModuleDependencyData;
+import com.intellij.openapi.externalSystem.model.project.ProjectData;
+import com.intellij.openapi.module.ModuleTypeId;
+import com.twitter.intellij.pants.service.project.model.ProjectInfo;
+import com.twitter.intellij.pants.service.project.model.ProjectInfoStreamingParser;
+import com.twitter.intellij.pants.util.PantsConstants;
+import com.twitter.intellij.pants.util.PantsUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class PantsImportWavesTest extends TestCase {
+
+  private static final String EXPORT =
+    "{\n" +
+    "  \"version\": \"1.0.9\",\n" +
+    "  \"libraries\": {},\n" +
+    "  \"targets\": {\n" +
+    "    \"a:a\": {\"targets\": [\"b:b\"], \"pants_target_type\": \"java_library\", \"is_target_root\": true},\n" +
+    "    \"b:b\": {\"targets\": [\"c:c\"], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"c:c\": {\"targets\": [], \"pants_target_type\": \"java_library\"},\n" +
+    "    \"x:x\": {\"targets\": [\"c:c\"], \"pants_target_type\": \"java_library\"}\n" +
+    "  }\n" +
+    "}\n";
+
+  private DataNode<ProjectData> myProjectNode;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myProjectNode = new DataNode<>(
+      ProjectKeys.PROJECT,
+      new ProjectData(PantsConstants.SYSTEM_ID, "test-project", "path/to/fake/project", "path/to/fake/project/BUILD"),
+      null
+    );
+  }
+
+  public void testTargetLevels() throws IOException {
+    final ProjectInfo projectInfo = ProjectInfoStreamingParser.parse(new StringReader(EXPORT));
+    final Map<String, Integer> levels = PantsImportWaves.getTargetLevels(projectInfo);
+    assertEquals(0, levels.get("a:a").intValue());
+    assertEquals(1, levels.get("b:b").intValue());
+    assertEquals(2, levels.get("c:c").intValue());
+    // No target root depends on it.
+    assertEquals(-1, levels.get("x:x").intValue());
+  }
+
+  public void testWaves() {
+    final Map<String, Integer> levels = new HashMap<>();
+    for (int level = 0; level <= 4; level++) {
+      levels.put("m" + level, level);
+      addModule("m" + level, level < 4 ? new String[]{"m" + (level + 1)} : new String[0]);
+    }
+    levels.put("unreachable", -1);
+    addModule("unreachable", "m0");
+    addModule("project_root");
+
+    final List<DataNode<ProjectData>> waves = PantsImportWaves.createWaves(levels, myProjectNode, 7);
+    assertEquals(3, waves.size());
+    assertEquals(Sets.newHashSet("m0", "m1", "project_root"), getModules(waves.get(0)));
+    assertEquals(Sets.newHashSet("m0", "m1", "m2", "project_root"), getModules(waves.get(1)));
+    assertSame(myProjectNode, waves.get(2));
+
+    // The dependencies on the modules of later waves are added with them.
+    assertEquals(Sets.newHashSet("m1"), getDependencies(waves.get(0), "m0"));
+    assertTrue(getDependencies(waves.get(0), "m1").isEmpty());
+    assertEquals(Sets.newHashSet("m2"), getDependencies(waves.get(1), "m1"));
+
+    assertEquals(1, PantsUtil.findChildren(waves.get(0), ImportWaveData.KEY).get(0).getMaxLevel());
+    assertEquals(2, PantsUtil.findChildren(waves.get(1), ImportWaveData.KEY).get(0).getMaxLevel());
+    assertEquals(7, PantsUtil.findChildren(waves.get(0), ImportWaveData.KEY).get(0).getGeneration());
+    assertEquals(7, PantsUtil.findChildren(waves.get(1), ImportWaveData.KEY).get(0).getGeneration());
+    assertTrue(PantsUtil.findChildren(waves.get(2), ImportWaveData.KEY).isEmpty());
+  }
+
+  public void testShallowProjectIsImportedAtOnce() {
+    final Map<String, Integer> levels = new HashMap<>();
+    levels.put("m0", 0);
+    levels.put("m1", 1);
+    addModule("m0", "m1");
+    addModule("m1");
+
+    final List<DataNode<ProjectData>> waves = PantsImportWaves.createWaves(levels, myProjectNode, 1);
+    assertEquals(1, waves.size());
+    assertSame(myProjectNode, waves.get(0));
+  }
+
+  private void addModule(@NotNull String name, @NotNull String... dependencies) {
+    final ModuleData moduleData = new ModuleData(
+      name, PantsConstants.SYSTEM_ID, ModuleTypeId.JAVA_MODULE, name, "path/to/fake/project/" + name, name
+    );
+    final DataNode<ModuleData> moduleNode = myProjectNode.createChild(ProjectKeys.MODULE, moduleData);
+    for (String dependency : dependencies) {
+      final ModuleData dependencyData = new ModuleData(
+        dependency, PantsConstants.SYSTEM_ID, ModuleTypeId.JAVA_MODULE, dependency, "path/to/fake/project/" + dependency, dependency
+      );
+      moduleNode.createChild(ProjectKeys.MODULE_DEPENDENCY, new ModuleDependencyData(moduleData, dependencyData));
+    }
+  }
+
+  @NotNull
+  private static Set<String> getModules(@NotNull DataNode<ProjectData> wave) {
+    return PantsUtil.findChildren(wave, ProjectKeys.MODULE).stream().map(ModuleData::getId).collect(Collectors.toSet());
+  }
+
+  @NotNull
+  private static Set<String> getDependencies(@NotNull DataNode<ProjectData> wave, @NotNull String moduleName) {
+    final DataNode<?> moduleNode = wave.getChildren().stream()
+      .filter(child -> {
+        final ModuleData moduleData = child.getData(ProjectKeys.MODULE);
+        return moduleData != null && moduleName.equals(moduleData.getId());
+      })
+      .findFirst()
+      .orElseThrow(AssertionError::new);
+    return PantsUtil.findChildren(moduleNode, ProjectKeys.MODULE_DEPENDENCY).stream()
+      .map(dependency -> dependency.getTarget().getId())
+      .collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,49 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.google.common.collect.Sets;
+import com.intellij.openapi.module.Module;
+import com.twitter.intellij.pants.model.PantsTargetAddress;
+import com.twitter.intellij.pants.testFramework.PantsCodeInsightFixtureTestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ModuleTargetAddressesTest extends PantsCodeInsightFixtureTestCase {
+  @Override
+  protected void tearDown() throws Exception {
+    getModule().clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+    super.tearDown();
+  }
+
+  public void testAddressesAreParsedOnce() {
+    final Module module = getModule();
+    module.setOption(
+      PantsConstants.PANTS_TARGET_ADDRESSES_KEY,
+      PantsUtil.dehydrateTargetAddresses(Sets.newHashSet("src/java/foo:foo", ".pants.d/gen/foo:foo"))
+    );
+    final List<PantsTargetAddress> addresses = PantsUtil.getTargetAddressesFromModule(module);
+    assertEquals(
+      Sets.newHashSet("src/java/foo:foo", ".pants.d/gen/foo:foo"),
+      addresses.stream().map(PantsTargetAddress::toString).collect(Collectors.toSet())
+    );
+    assertSame(addresses, PantsUtil.getTargetAddressesFromModule(module));
+    assertEquals(Collections.singletonList("src/java/foo:foo"), PantsUtil.getNonGenTargetAddresses(module));
+  }
+
+  public void testAddressesAreParsedAgainAfterImport() {
+    final Module module = getModule();
+    module.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, PantsUtil.dehydrateTargetAddresses(Collections.singleton("src/java/foo:foo")));
+    final List<PantsTargetAddress> addresses = PantsUtil.getTargetAddressesFromModule(module);
+
+    module.setOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY, PantsUtil.dehydrateTargetAddresses(Collections.singleton("src/java/bar:bar")));
+    assertNotSame(addresses, PantsUtil.getTargetAddressesFromModule(module));
+    assertEquals(Collections.singletonList("src/java/bar:bar"), PantsUtil.getNonGenTargetAddresses(module));
+
+    module.clearOption(PantsConstants.PANTS_TARGET_ADDRESSES_KEY);
+    assertEmpty(PantsUtil.getTargetAddressesFromModule(module));
+  }
+}
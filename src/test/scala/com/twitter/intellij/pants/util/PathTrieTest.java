@@ -0,0 +1,55 @@
+// Copyright 2021 Pants project contributors (see CONTRIBUTORS.md).
+// Licensed under the Apache License, Version 2.0 (see LICENSE).
+
+package com.twitter.intellij.pants.util;
+
+import com.google.common.collect.Sets;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PathTrieTest extends TestCase {
+  public void testContainsAncestor() {
+    final PathTrie trie = new PathTrie(Arrays.asList("/a/b", "/c"));
+    assertTrue(trie.containsAncestor("/a/b", false));
+    assertFalse(trie.containsAncestor("/a/b", true));
+    assertTrue(trie.containsAncestor("/a/b/d/e", true));
+    assertTrue(trie.containsAncestor("/c/d", true));
+    assertFalse(trie.containsAncestor("/a", false));
+    assertFalse(trie.containsAncestor("/a/bc", false));
+    assertFalse(trie.containsAncestor("a/b/d", false));
+  }
+
+  public void testFindLongestPrefix() {
+    final PathTrie trie = new PathTrie(Arrays.asList("/a", "/a/b/c", "/a/b/c/d/"));
+    assertEquals("/a", trie.findLongestPrefix("/a/b"));
+    assertEquals("/a/b/c", trie.findLongestPrefix("/a/b/c"));
+    assertEquals("/a/b/c/d/", trie.findLongestPrefix("/a/b/c/d/e"));
+    assertEquals("/a/b/c", trie.findLongestPrefix("/a//b/c/x"));
+    assertNull(trie.findLongestPrefix("/b"));
+  }
+
+  public void testGetTopAncestors() {
+    final PathTrie trie = new PathTrie(Arrays.asList("a/b/c", "a/b/c/d", "a/b/e", "a/b/c/f/g", "x"));
+    assertEquals(Sets.newHashSet("a/b/c", "a/b/e", "x"), Sets.newHashSet(trie.getTopAncestors()));
+  }
+
+  public void testManyRoots() {
+    final List<String> paths = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      paths.add("/gen/" + i);
+      for (int j = 0; j < 100; j++) {
+        paths.add("/gen/" + i + "/src/" + j);
+      }
+    }
+    final PathTrie trie = new PathTrie(paths);
+    assertEquals(1000, trie.getTopAncestors().size());
+    for (int i = 0; i < 1000; i++) {
+      assertFalse(trie.containsAncestor("/gen/" + i, true));
+      assertEquals("/gen/" + i, trie.findLongestPrefix("/gen/" + i + "/src/100"));
+      assertEquals("/gen/" + i + "/src/99", trie.findLongestPrefix("/gen/" + i + "/src/99/a"));
+    }
+  }
+}